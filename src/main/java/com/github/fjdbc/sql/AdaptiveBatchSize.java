@@ -0,0 +1,147 @@
+package com.github.fjdbc.sql;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link BatchFlushPolicy} that tunes the batch size from the observed latency and throughput of
+ * {@link java.sql.Statement#executeBatch()}, within {@code [minBatchSize, maxBatchSize]}.
+ * <p>
+ * Two strategies are available:
+ * <ul>
+ * <li>{@link #targetLatency}: additive increase / multiplicative decrease (AIMD) of the batch size, so that each
+ * execution takes about the target latency.
+ * <li>{@link #maxThroughput}: hill-climbing towards the batch size that maximizes the number of rows per second.
+ * </ul>
+ * The chosen sizes are exposed by {@link #getBatchSize()} and {@link #getBestBatchSize()}, so that they can later be
+ * pinned with {@link BatchFlushPolicy#everyNRow(long)}.
+ * <p>
+ * This class is thread-safe: a single instance may be shared by the workers of a parallel batch. It holds the state
+ * of the tuning, so an instance must not be shared between operations.
+ */
+public class AdaptiveBatchSize implements BatchFlushPolicy {
+	/**
+	 * Multiplicative step of the hill-climbing strategy.
+	 */
+	private static final double hillClimbingStep = 1.25;
+	/**
+	 * Relative drop of throughput considered significant by the hill-climbing strategy (to ignore noise).
+	 */
+	private static final double hillClimbingTolerance = 0.05;
+
+	private final int minBatchSize;
+	private final int maxBatchSize;
+	/**
+	 * Target latency in nanoseconds, or {@code 0} to maximize the throughput.
+	 */
+	private final long targetLatencyNanos;
+	private final int additiveIncrease;
+
+	private volatile int batchSize;
+	private int direction = 1;
+	private double lastThroughput;
+	private int bestBatchSize;
+	private double bestThroughput;
+	private long executionCount;
+
+	private AdaptiveBatchSize(int minBatchSize, int maxBatchSize, long targetLatencyNanos) {
+		if (minBatchSize <= 0) throw new IllegalArgumentException("minBatchSize must be > 0");
+		if (maxBatchSize < minBatchSize) throw new IllegalArgumentException("maxBatchSize must be >= minBatchSize");
+		this.minBatchSize = minBatchSize;
+		this.maxBatchSize = maxBatchSize;
+		this.targetLatencyNanos = targetLatencyNanos;
+		this.additiveIncrease = Math.max(1, (maxBatchSize - minBatchSize) / 100);
+		this.batchSize = minBatchSize;
+		this.bestBatchSize = minBatchSize;
+	}
+
+	/**
+	 * Move the batch size towards the size for which each execution takes {@code targetLatency}, using additive
+	 * increase and multiplicative decrease.
+	 */
+	public static AdaptiveBatchSize targetLatency(long targetLatency, TimeUnit unit, int minBatchSize,
+			int maxBatchSize) {
+		if (targetLatency <= 0) throw new IllegalArgumentException("targetLatency must be > 0");
+		return new AdaptiveBatchSize(minBatchSize, maxBatchSize, unit.toNanos(targetLatency));
+	}
+
+	/**
+	 * Move the batch size towards the size that maximizes the number of rows per second, using hill-climbing.
+	 */
+	public static AdaptiveBatchSize maxThroughput(int minBatchSize, int maxBatchSize) {
+		return new AdaptiveBatchSize(minBatchSize, maxBatchSize, 0);
+	}
+
+	@Override
+	public boolean shouldFlush(PendingBatch batch) {
+		return batch.getRowCount() >= batchSize;
+	}
+
+	@Override
+	public synchronized void batchExecuted(int rowCount, long elapsedNanos) {
+		if (rowCount <= 0) return;
+		executionCount++;
+		final double throughput = rowCount * 1e9 / Math.max(1, elapsedNanos);
+		if (throughput > bestThroughput) {
+			bestThroughput = throughput;
+			bestBatchSize = rowCount;
+		}
+
+		if (targetLatencyNanos > 0) {
+			if (elapsedNanos > targetLatencyNanos) {
+				setBatchSize(batchSize / 2);
+			} else if (rowCount >= batchSize) {
+				// batches executed early (before a commit, or at the end of the stream) do not show whether a larger
+				// size would fit in the target latency.
+				setBatchSize(batchSize + additiveIncrease);
+			}
+		} else {
+			// same as above: only full batches are representative.
+			if (rowCount < batchSize) return;
+			if (throughput < lastThroughput * (1 - hillClimbingTolerance)) direction = -direction;
+			lastThroughput = throughput;
+			final int next = (int) (direction > 0 ? Math.ceil(batchSize * hillClimbingStep)
+					: Math.floor(batchSize / hillClimbingStep));
+			if (!setBatchSize(next)) direction = -direction;
+		}
+	}
+
+	/**
+	 * @return {@code false} if the size had to be clamped to the bounds.
+	 */
+	private boolean setBatchSize(int size) {
+		final int clamped = Math.max(minBatchSize, Math.min(maxBatchSize, size));
+		batchSize = clamped;
+		return clamped == size;
+	}
+
+	/**
+	 * The current batch size.
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * The size of the batch having the best observed throughput so far.
+	 */
+	public synchronized int getBestBatchSize() {
+		return bestBatchSize;
+	}
+
+	/**
+	 * The best observed throughput so far, in rows per second.
+	 */
+	public synchronized double getBestThroughput() {
+		return bestThroughput;
+	}
+
+	public synchronized long getExecutionCount() {
+		return executionCount;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("batchSize=%d, bestBatchSize=%d, bestThroughput=%.0f rows/s, executions=%d", batchSize,
+				bestBatchSize, bestThroughput, executionCount);
+	}
+}
@@ -0,0 +1,92 @@
+package com.github.fjdbc.sql;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The progress of a batch load, as of its last commit: the number of statements of the input stream that were
+ * committed, and the number of rows they modified.
+ * <p>
+ * Checkpoints are written by {@link BatchStatementOperation} when a checkpoint file is set (see
+ * {@link BatchStatementOperation#setCheckpointFile(Path)}).
+ */
+public class BatchCheckpoint {
+	private static final String offsetKey = "offset=";
+	private static final String rowCountKey = "rowCount=";
+
+	private final long offset;
+	private final int rowCount;
+
+	public BatchCheckpoint(long offset, int rowCount) {
+		this.offset = offset;
+		this.rowCount = rowCount;
+	}
+
+	/**
+	 * The number of statements of the input stream that were committed.
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * The number of rows modified by the committed statements.
+	 */
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * Read a checkpoint file.
+	 * @return The checkpoint, or {@code null} if the file does not exist.
+	 */
+	public static BatchCheckpoint read(Path file) {
+		if (!Files.exists(file)) return null;
+		try {
+			long offset = 0;
+			int rowCount = 0;
+			for (final String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+				if (line.startsWith(offsetKey)) {
+					offset = Long.parseLong(line.substring(offsetKey.length()).trim());
+				} else if (line.startsWith(rowCountKey)) {
+					rowCount = Integer.parseInt(line.substring(rowCountKey.length()).trim());
+				}
+			}
+			return new BatchCheckpoint(offset, rowCount);
+		} catch (final IOException e) {
+			throw new UncheckedIOException("Cannot read checkpoint file " + file, e);
+		}
+	}
+
+	/**
+	 * Write this checkpoint to a file. The file is replaced atomically, so that a crash never leaves a partially
+	 * written checkpoint.
+	 */
+	public void write(Path file) {
+		final Path absoluteFile = file.toAbsolutePath();
+		final List<String> lines = Arrays.asList(offsetKey + offset, rowCountKey + rowCount);
+		try {
+			final Path tmp = Files.createTempFile(absoluteFile.getParent(), absoluteFile.getFileName().toString(),
+					".tmp");
+			try {
+				Files.write(tmp, lines, StandardCharsets.UTF_8);
+				Files.move(tmp, absoluteFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} finally {
+				Files.deleteIfExists(tmp);
+			}
+		} catch (final IOException e) {
+			throw new UncheckedIOException("Cannot write checkpoint file " + file, e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "offset=" + offset + ", rowCount=" + rowCount;
+	}
+}
@@ -0,0 +1,94 @@
+package com.github.fjdbc.sql;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when the rows accumulated in a JDBC batch must be sent to the database (using
+ * {@link java.sql.Statement#executeBatch()}).
+ * <p>
+ * The policy is checked each time a row is added to the batch. Regardless of the policy, the remaining rows are always
+ * executed at the end of the stream, and before each commit.
+ * <p>
+ * The built-in policies are stateless (the state is held by the {@link PendingBatch}), so that a single instance can be
+ * shared by several operations. Adaptive policies such as {@link AdaptiveBatchSize} hold the state of their tuning:
+ * an instance must not be shared between operations.
+ */
+@FunctionalInterface
+public interface BatchFlushPolicy {
+	/**
+	 * Return {@code true} if the batch must be executed now.
+	 */
+	boolean shouldFlush(PendingBatch batch);
+
+	/**
+	 * Called after each successful execution of a JDBC batch, so that adaptive policies can observe the performance
+	 * of the database. When statements are grouped by shape, this method is called once per {@code PreparedStatement}
+	 * executed. Failed executions, and the re-executions used to isolate failing rows, are not reported.
+	 * @param rowCount
+	 *        The number of rows executed.
+	 * @param elapsedNanos
+	 *        The time spent in {@link java.sql.Statement#executeBatch()} for this batch only, in nanoseconds.
+	 */
+	default void batchExecuted(int rowCount, long elapsedNanos) {
+		// do nothing
+	}
+
+	/**
+	 * Never execute the batch before the end of the stream (or before a commit).
+	 */
+	public static final BatchFlushPolicy endOfStream = batch -> false;
+
+	/**
+	 * Execute the batch every {@code n} rows.
+	 */
+	public static BatchFlushPolicy everyNRow(long n) {
+		if (n <= 0) throw new IllegalArgumentException("n must be > 0");
+		return batch -> batch.getRowCount() >= n;
+	}
+
+	/**
+	 * Execute the batch as soon as the estimated size of the bound values reaches {@code maxBytes}.
+	 * <p>
+	 * Sizes are estimated using the row weigher set with
+	 * {@link BatchStatementOperation#setRowWeigher(java.util.function.ToLongFunction)}.
+	 */
+	public static BatchFlushPolicy everyNBytes(long maxBytes) {
+		if (maxBytes <= 0) throw new IllegalArgumentException("maxBytes must be > 0");
+		return batch -> batch.getEstimatedBytes() >= maxBytes;
+	}
+
+	/**
+	 * Execute the batch if the specified duration has elapsed since the last execution.
+	 * <p>
+	 * The elapsed time is only checked when a row is added, so a slow input stream may still delay the execution.
+	 */
+	public static BatchFlushPolicy every(long duration, TimeUnit unit) {
+		if (duration <= 0) throw new IllegalArgumentException("duration must be > 0");
+		final long nanos = unit.toNanos(duration);
+		return batch -> batch.getNanosSinceLastFlush() >= nanos;
+	}
+
+	/**
+	 * Execute the batch as soon as any of the specified policies requests it.
+	 */
+	public static BatchFlushPolicy anyOf(BatchFlushPolicy... policies) {
+		final BatchFlushPolicy[] _policies = Arrays.copyOf(policies, policies.length);
+		return new BatchFlushPolicy() {
+			@Override
+			public boolean shouldFlush(PendingBatch batch) {
+				for (final BatchFlushPolicy p : _policies) {
+					if (p.shouldFlush(batch)) return true;
+				}
+				return false;
+			}
+
+			@Override
+			public void batchExecuted(int rowCount, long elapsedNanos) {
+				for (final BatchFlushPolicy p : _policies) {
+					p.batchExecuted(rowCount, elapsedNanos);
+				}
+			}
+		};
+	}
+}
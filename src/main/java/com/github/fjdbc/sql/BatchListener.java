@@ -0,0 +1,55 @@
+package com.github.fjdbc.sql;
+
+import java.sql.SQLException;
+
+/**
+ * Receives the events of a {@link BatchStatementOperation}, for monitoring purposes.
+ * <p>
+ * Events are only sent when a batch is executed, committed, or fails, never for each individual row. In parallel
+ * mode, methods may be called concurrently by several workers.
+ * @see BatchMetrics
+ */
+public interface BatchListener {
+	/**
+	 * Called before each execution of the batch.
+	 * @param rowCount
+	 *        The number of rows bound since the last execution.
+	 */
+	default void rowsBound(int rowCount) {
+		// do nothing
+	}
+
+	/**
+	 * Called after each execution of the batch.
+	 * @param rowCount
+	 *        The number of rows executed.
+	 * @param elapsedNanos
+	 *        The time spent in {@link java.sql.Statement#executeBatch()}, in nanoseconds.
+	 */
+	default void batchExecuted(int rowCount, long elapsedNanos) {
+		// do nothing
+	}
+
+	/**
+	 * Called after each commit.
+	 * @param elapsedNanos
+	 *        The time spent committing, in nanoseconds.
+	 */
+	default void committed(long elapsedNanos) {
+		// do nothing
+	}
+
+	/**
+	 * Called when an exception is sent to the error handler.
+	 */
+	default void error(SQLException e) {
+		// do nothing
+	}
+
+	/**
+	 * Called when the execution is cancelled (see {@link BatchStatementOperation#cancel()}).
+	 */
+	default void cancelled() {
+		// do nothing
+	}
+}
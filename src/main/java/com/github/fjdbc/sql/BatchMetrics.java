@@ -0,0 +1,160 @@
+package com.github.fjdbc.sql;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link BatchListener} that aggregates the events of a batch operation: row, batch, commit and error counts,
+ * throughput, and latency histograms.
+ * <p>
+ * This class is thread-safe, and may be read while the operation is running.
+ */
+public class BatchMetrics implements BatchListener {
+	private final long startNanos = System.nanoTime();
+	private final LongAdder rowsBound = new LongAdder();
+	private final LongAdder rowsExecuted = new LongAdder();
+	private final LongAdder errorCount = new LongAdder();
+	private volatile boolean cancelled;
+	private final LatencyHistogram batchLatency = new LatencyHistogram();
+	private final LatencyHistogram commitLatency = new LatencyHistogram();
+
+	@Override
+	public void rowsBound(int rowCount) {
+		rowsBound.add(rowCount);
+	}
+
+	@Override
+	public void batchExecuted(int rowCount, long elapsedNanos) {
+		rowsExecuted.add(rowCount);
+		batchLatency.record(elapsedNanos);
+	}
+
+	@Override
+	public void committed(long elapsedNanos) {
+		commitLatency.record(elapsedNanos);
+	}
+
+	@Override
+	public void error(SQLException e) {
+		errorCount.increment();
+	}
+
+	@Override
+	public void cancelled() {
+		cancelled = true;
+	}
+
+	public long getRowsBound() {
+		return rowsBound.sum();
+	}
+
+	public long getRowsExecuted() {
+		return rowsExecuted.sum();
+	}
+
+	public long getBatchCount() {
+		return batchLatency.getCount();
+	}
+
+	public long getCommitCount() {
+		return commitLatency.getCount();
+	}
+
+	public long getErrorCount() {
+		return errorCount.sum();
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * The number of rows executed per second, since this object was created.
+	 */
+	public double getRowsPerSecond() {
+		final long elapsedNanos = Math.max(1, System.nanoTime() - startNanos);
+		return getRowsExecuted() * 1e9 / elapsedNanos;
+	}
+
+	/**
+	 * The latency of {@link java.sql.Statement#executeBatch()}.
+	 */
+	public LatencyHistogram getBatchLatency() {
+		return batchLatency;
+	}
+
+	public LatencyHistogram getCommitLatency() {
+		return commitLatency;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("rows=%d, rows/s=%.0f, batches=%d, batch p50=%dus p99=%dus, commits=%d, errors=%d%s",
+				getRowsExecuted(), getRowsPerSecond(), getBatchCount(),
+				batchLatency.getPercentile(0.5, TimeUnit.MICROSECONDS),
+				batchLatency.getPercentile(0.99, TimeUnit.MICROSECONDS), getCommitCount(), getErrorCount(),
+				cancelled ? ", cancelled" : "");
+	}
+
+	/**
+	 * A histogram of latencies with power-of-two buckets: bucket {@code i} counts the latencies in
+	 * {@code [2^(i-1), 2^i)} microseconds (bucket 0 counts latencies under 1 microsecond).
+	 */
+	public static class LatencyHistogram {
+		private static final int bucketCount = 40;
+		private final AtomicLongArray buckets = new AtomicLongArray(bucketCount);
+		private final LongAdder count = new LongAdder();
+		private final LongAdder totalNanos = new LongAdder();
+
+		void record(long elapsedNanos) {
+			final long micros = TimeUnit.NANOSECONDS.toMicros(elapsedNanos);
+			final int bucket = Math.min(bucketCount - 1, 64 - Long.numberOfLeadingZeros(micros));
+			buckets.incrementAndGet(bucket);
+			count.increment();
+			totalNanos.add(elapsedNanos);
+		}
+
+		public long getCount() {
+			return count.sum();
+		}
+
+		/**
+		 * The number of latencies recorded in each bucket.
+		 */
+		public long[] getBuckets() {
+			final long[] res = new long[bucketCount];
+			for (int i = 0; i < bucketCount; i++) {
+				res[i] = buckets.get(i);
+			}
+			return res;
+		}
+
+		/**
+		 * The upper bound of the bucket containing the specified percentile.
+		 * @param percentile
+		 *        A value between 0 and 1.
+		 */
+		public long getPercentile(double percentile, TimeUnit unit) {
+			final long[] _buckets = getBuckets();
+			long total = 0;
+			for (final long c : _buckets) {
+				total += c;
+			}
+			if (total == 0) return 0;
+			final long rank = (long) Math.ceil(percentile * total);
+			long cumulated = 0;
+			for (int i = 0; i < _buckets.length; i++) {
+				cumulated += _buckets[i];
+				if (cumulated >= rank) return unit.convert(1L << i, TimeUnit.MICROSECONDS);
+			}
+			return unit.convert(1L << (bucketCount - 1), TimeUnit.MICROSECONDS);
+		}
+
+		public long getMean(TimeUnit unit) {
+			final long _count = getCount();
+			return _count == 0 ? 0 : unit.convert(totalNanos.sum() / _count, TimeUnit.NANOSECONDS);
+		}
+	}
+}
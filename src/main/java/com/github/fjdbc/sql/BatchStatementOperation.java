@@ -1,12 +1,39 @@
 package com.github.fjdbc.sql;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Savepoint;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import com.github.fjdbc.ConnectionProvider;
@@ -25,27 +52,67 @@ public class BatchStatementOperation<T extends SqlFragment> implements Statement
 	private SQLConsumer<Statement> afterExecutionConsumer;
 	private final Stream<T> statements;
 	private final ConnectionProvider cnxProvider;
-	private final long executeEveryNRow;
 	private final long commitEveryNRow;
+	private BatchFlushPolicy flushPolicy;
+	private ToLongFunction<? super T> rowWeigher;
+	/**
+	 * If {@code > 0}, statements are grouped by shape.
+	 */
+	private int maxOpenStatements = 0;
 	private BiConsumer<SQLException, T> errorHandler = (e, statement) -> {
 		throw new RuntimeSQLException(e);
 	};
 	private AtomicBoolean cancelRequested = new AtomicBoolean();
+	/**
+	 * Set once {@link BatchListener#cancelled()} has been called.
+	 */
+	private final AtomicBoolean cancellationReported = new AtomicBoolean();
+	/**
+	 * If {@code > 0}, the execution is pipelined.
+	 */
+	private int pipelineChunkSize = 0;
+	private int maxInFlightChunks;
+	private Path checkpointFile;
+	/**
+	 * May be null.
+	 */
+	private BatchListener listener;
+	/**
+	 * If {@code > 0}, failure isolation is enabled.
+	 */
+	private int maxIsolatedRows = 0;
+	private int workerCount = 1;
+	private int queueCapacity;
+	private Function<? super T, ?> partitioner;
+	private static final Object END_OF_STREAM = new Object();
 
 	public BatchStatementOperation(ConnectionProvider cnxProvider, Stream<T> statements, long executeEveryNRow,
 			long commitEveryNRow) {
 		this.cnxProvider = cnxProvider;
 		this.statements = statements;
-		this.executeEveryNRow = executeEveryNRow;
 		this.commitEveryNRow = commitEveryNRow;
+		this.flushPolicy = executeEveryNRow > 0 ? BatchFlushPolicy.everyNRow(executeEveryNRow)
+				: BatchFlushPolicy.endOfStream;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The consumer is called once for each {@code PreparedStatement}, right after it is prepared, not once per row: a
+	 * single statement is prepared per shape (see {@link #groupByShape(int)}), and reused for all the rows of the
+	 * batch.
+	 */
 	@Override
 	public StatementOperation doBeforeExecution(SQLConsumer<Statement> beforeExecutionConsumer) {
 		this.beforeExecutionConsumer = beforeExecutionConsumer;
 		return this;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The consumer is called once for each {@code PreparedStatement}, right before it is closed, not once per row.
+	 */
 	@Override
 	public StatementOperation doAfterExecution(SQLConsumer<Statement> afterExecutionConsumer) {
 		this.afterExecutionConsumer = afterExecutionConsumer;
@@ -59,55 +126,603 @@ public class BatchStatementOperation<T extends SqlFragment> implements Statement
 	}
 
 	private int execute_preparedStatement(Connection cnx) throws SQLException {
-		// since we need to access local variables inside the Consumer, we wrap each variables in an array of
-		// size 1
-		final PreparedStatement[] ps = new PreparedStatement[1];
-		final String[] sql = new String[1];
-		final int[] nRows = new int[1];
-		nRows[0] = 0;
-		final IntSequence count = new IntSequence(0);
-
-		final SQLConsumer<T> consumer = st -> {
-			if (ps[0] == null) {
-				sql[0] = st.getSql();
-				ps[0] = cnx.prepareStatement(sql[0]);
-			}
-			beforeExecution(ps[0]);
+		final BatchCheckpoint checkpoint = checkpointFile == null ? null : BatchCheckpoint.read(checkpointFile);
+		final Batch batch = new Batch(cnx, checkpoint);
+		final SQLConsumer<T> consumer = batch::accept;
+		// skip the statements committed by a previous execution
+		final Stream<T> input = checkpoint == null ? statements : statements.skip(checkpoint.getOffset());
+		try {
+			if (pipelineChunkSize > 0) {
+				execute_pipelined(batch, input);
+			} else {
+				input.forEachOrdered(consumer.uncheck());
+			}
+			batch.flush();
+		} catch (final Exception e) {
+			if (!(e instanceof CancellationException)) {
+				throw e;
+			}
+		} finally {
+			batch.close();
+			statements.close();
+		}
+		return batch.nRows;
+	}
+
+	/**
+	 * Consume the statements in chunks produced by a separate thread, so that building the statements overlaps with
+	 * the JDBC calls.
+	 */
+	private void execute_pipelined(Batch batch, Stream<T> input) throws SQLException {
+		final BlockingQueue<Chunk<T>> queue = new ArrayBlockingQueue<>(maxInFlightChunks);
+		// set by the consumer when it stops taking chunks, e.g after a failure
+		final AtomicBoolean stopped = new AtomicBoolean();
+		final ExecutorService executor = Executors.newSingleThreadExecutor(daemonThreads("fjdbc-batch-producer"));
+		final Future<?> producer = executor.submit(() -> {
 			try {
-				st.bind(ps[0], new IntSequence(1));
-				ps[0].addBatch();
-				count.next();
+				final Iterator<T> it = input.iterator();
+				while (it.hasNext()) {
+					final Chunk<T> chunk = new Chunk<>(pipelineChunkSize);
+					while (chunk.size() < pipelineChunkSize && it.hasNext()) {
+						final T st = it.next();
+						chunk.add(st, maxOpenStatements > 0 ? st.getShape() : null);
+					}
+					// the interruption may have been cleared by the input stream
+					if (stopped.get() || Thread.currentThread().isInterrupted()) return null;
+					queue.put(chunk);
+				}
+			} finally {
+				// does not block: if the consumer stops in the meantime, it empties the queue
+				if (!stopped.get()) queue.put(Chunk.endOfStream());
+			}
+			return null;
+		});
+		try {
+			while (true) {
+				final Chunk<T> chunk = queue.take();
+				if (chunk.isEndOfStream()) break;
+				for (int i = 0; i < chunk.size(); i++) {
+					batch.accept(chunk.statements.get(i), chunk.shapes.get(i));
+				}
+			}
+			// rethrow the exception of the producer, if any
+			producer.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CancellationException("Interrupted while waiting for the next chunk");
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+			if (cause instanceof Error) throw (Error) cause;
+			throw new IllegalStateException(cause);
+		} finally {
+			stopped.set(true);
+			queue.clear();
+			producer.cancel(true);
+			executor.shutdownNow();
+			// the input stream must not be closed while the producer is still iterating it
+			awaitTermination(executor);
+		}
+	}
+
+	/**
+	 * Wait for the termination of an executor that has been shut down. An interruption does not stop the wait, but is
+	 * restored afterwards.
+	 */
+	private static void awaitTermination(ExecutorService executor) {
+		boolean interrupted = false;
+		while (true) {
+			try {
+				if (executor.awaitTermination(1, TimeUnit.MINUTES)) break;
+			} catch (final InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * Create daemon threads, so that a thread still running (e.g blocked by the input stream) does not prevent the JVM
+	 * from exiting.
+	 */
+	private static ThreadFactory daemonThreads(String name) {
+		final AtomicInteger threadCount = new AtomicInteger();
+		return r -> {
+			final Thread res = new Thread(r, name + "-" + threadCount.incrementAndGet());
+			res.setDaemon(true);
+			return res;
+		};
+	}
+
+	/**
+	 * A chunk of statements, along with their shapes if statements are grouped by shape.
+	 */
+	private static class Chunk<T> {
+		private final List<T> statements;
+		private final List<String> shapes;
+
+		public Chunk(int capacity) {
+			statements = new ArrayList<>(capacity);
+			shapes = new ArrayList<>(capacity);
+		}
+
+		public static <T> Chunk<T> endOfStream() {
+			return new Chunk<>(0);
+		}
+
+		public void add(T statement, String shape) {
+			statements.add(statement);
+			shapes.add(shape);
+		}
+
+		public int size() {
+			return statements.size();
+		}
+
+		public boolean isEndOfStream() {
+			return statements.isEmpty();
+		}
+	}
+
+	/**
+	 * A {@link PreparedStatement} and the number of rows added to it since the last execution.
+	 */
+	private class OpenStatement {
+		private final PreparedStatement ps;
+		private int pendingRows;
+		/**
+		 * Sequence number of the oldest pending row.
+		 */
+		private long firstPendingRow;
+		/**
+		 * The pending statements, kept only if failure isolation is enabled.
+		 */
+		private final List<T> pendingStatements = new ArrayList<>();
+
+		public OpenStatement(PreparedStatement ps) {
+			this.ps = ps;
+		}
+	}
+
+	/**
+	 * Accumulates rows in one {@link PreparedStatement} per statement shape until they are executed.
+	 */
+	private class Batch {
+		private final Connection cnx;
+		private final PendingBatch pending = new PendingBatch();
+		/**
+		 * The open statements by shape, least recently used first. If statements are not grouped by shape, there is a
+		 * single entry with a {@code null} key.
+		 */
+		private final Map<String, OpenStatement> openStatements = new LinkedHashMap<>(16, 0.75f, true);
+		/**
+		 * Number of statements consumed from the stream, including the statements that failed.
+		 */
+		private final IntSequence count = new IntSequence(0);
+		/**
+		 * Number of rows modified by the executed batches.
+		 */
+		private int nRows = 0;
+		private int commitCount = 0;
+		/**
+		 * The checkpoint this execution resumes from, or {@code null}.
+		 */
+		private final BatchCheckpoint initialCheckpoint;
+		/**
+		 * The number of statements committed by previous executions.
+		 */
+		private final long initialOffset;
+
+		public Batch(Connection cnx) {
+			this(cnx, null);
+		}
+
+		public Batch(Connection cnx, BatchCheckpoint initialCheckpoint) {
+			this.cnx = cnx;
+			this.initialCheckpoint = initialCheckpoint;
+			this.initialOffset = initialCheckpoint == null ? 0 : initialCheckpoint.getOffset();
+		}
+
+		/**
+		 * Add a statement to the batch, then execute and commit as requested by the flush policy and
+		 * {@code commitEveryNRow}.
+		 */
+		public void accept(T st) throws SQLException {
+			accept(st, maxOpenStatements > 0 ? st.getShape() : null);
+		}
+
+		/**
+		 * Same as {@link #accept(SqlFragment)}, with a shape already computed.
+		 */
+		public void accept(T st, String shape) throws SQLException {
+			// count the statement whatever its outcome: a statement sent to the error handler must not be executed
+			// again when resuming from a checkpoint.
+			count.next();
+			try {
+				add(st, shape);
 				if (cancelRequested.get()) {
 					cnxProvider.rollback(cnx);
+					reportCancellation();
 					throw new CancellationException();
 				}
-				if (executeEveryNRow > 0 && (count.get() % executeEveryNRow) == 0) {
-					final int[] nRows_array = ps[0].executeBatch();
-					nRows[0] += getNRowsModifiedByBatch(nRows_array);
+				if (flushPolicy.shouldFlush(pending)
+						|| (maxIsolatedRows > 0 && pending.getRowCount() >= maxIsolatedRows)) {
+					flush();
 				}
-				if (commitEveryNRow > 0 && (count.get() % commitEveryNRow) == 0) {
-					cnxProvider.commit(cnx);
+				// the commit boundaries do not depend on the checkpoint the execution resumes from
+				if (commitEveryNRow > 0 && ((initialOffset + count.get()) % commitEveryNRow) == 0) {
+					commit();
 				}
 			} catch (final SQLException e) {
-				errorHandler.accept(e, st);
+				handleError(e, st);
 			}
+		}
 
-			final int[] nRows_array = ps[0].executeBatch();
-			nRows[0] += getNRowsModifiedByBatch(nRows_array);
-			afterExecution(ps[0]);
-		};
+		private void add(T st, String shape) throws SQLException {
+			OpenStatement os = openStatements.get(shape);
+			if (os == null) {
+				if (openStatements.size() >= Math.max(1, maxOpenStatements)) {
+					// evict the least recently used statement
+					flush();
+					final Iterator<OpenStatement> it = openStatements.values().iterator();
+					close(it.next());
+					it.remove();
+				}
+				// the shape is the SQL without the values printed in debug mode
+				os = new OpenStatement(cnx.prepareStatement(shape != null ? shape : st.getSql()));
+				beforeExecution(os.ps);
+				openStatements.put(shape, os);
+			}
+			st.bind(os.ps, new IntSequence(1));
+			os.ps.addBatch();
+			if (os.pendingRows++ == 0) os.firstPendingRow = count.get();
+			if (maxIsolatedRows > 0) os.pendingStatements.add(st);
+			pending.rowAdded(rowWeigher == null ? 0 : rowWeigher.applyAsLong(st));
+		}
 
-		try {
-			statements.forEachOrdered(consumer.uncheck());
-		} catch (final Exception e) {
-			if (!(e instanceof CancellationException)) {
+		/**
+		 * Execute the pending rows of all open statements, if any. Statements are executed in the order of their
+		 * oldest pending row.
+		 */
+		public void flush() throws SQLException {
+			if (pending.isEmpty()) return;
+			final List<OpenStatement> toExecute = new ArrayList<>(openStatements.size());
+			for (final OpenStatement os : openStatements.values()) {
+				if (os.pendingRows > 0) toExecute.add(os);
+			}
+			if (toExecute.size() > 1) toExecute.sort(Comparator.comparingLong(os -> os.firstPendingRow));
+			if (listener != null) listener.rowsBound(pending.getRowCount());
+			final long start = System.nanoTime();
+			try {
+				for (final OpenStatement os : toExecute) {
+					if (maxIsolatedRows > 0) {
+						executeIsolated(os);
+					} else {
+						final long batchStart = System.nanoTime();
+						final int[] nRows_array = os.ps.executeBatch();
+						flushPolicy.batchExecuted(os.pendingRows, System.nanoTime() - batchStart);
+						nRows = addRowCounts(nRows, getNRowsModifiedByBatch(nRows_array));
+					}
+					os.pendingRows = 0;
+				}
+			} catch (final SQLException e) {
+				// the rows of the failed batches are lost: start over with empty batches.
+				for (final OpenStatement os : toExecute) {
+					if (os.pendingRows > 0) os.ps.clearBatch();
+					os.pendingRows = 0;
+					os.pendingStatements.clear();
+				}
+				pending.flushed();
 				throw e;
 			}
+			final long elapsedNanos = System.nanoTime() - start;
+			if (listener != null) listener.batchExecuted(pending.getRowCount(), elapsedNanos);
+			pending.flushed();
+		}
+
+		/**
+		 * Execute the pending rows of a statement. If the batch fails, it is rolled back and split recursively to find
+		 * the failing statements, which are sent to the error handler.
+		 */
+		private void executeIsolated(OpenStatement os) throws SQLException {
+			final List<T> statements = new ArrayList<>(os.pendingStatements);
+			os.pendingStatements.clear();
+			final long start = System.nanoTime();
+			final SQLException e = executeWithSavepoint(os, null);
+			if (e == null) {
+				// the re-executions of a failed batch are not representative of its latency
+				flushPolicy.batchExecuted(statements.size(), System.nanoTime() - start);
+				return;
+			}
+			if (statements.size() == 1) {
+				handleError(e, statements.get(0));
+			} else {
+				bisect(os, statements);
+			}
+		}
+
+		/**
+		 * Find the failing statements in a list of statements that failed as a whole.
+		 */
+		private void bisect(OpenStatement os, List<T> statements) throws SQLException {
+			final int middle = statements.size() / 2;
+			for (final List<T> half : Arrays.asList(statements.subList(0, middle),
+					statements.subList(middle, statements.size()))) {
+				final SQLException e = executeWithSavepoint(os, half);
+				if (e == null) continue;
+				if (half.size() == 1) {
+					handleError(e, half.get(0));
+				} else {
+					bisect(os, half);
+				}
+			}
+		}
+
+		/**
+		 * Execute a batch; if it fails, roll back to the state before the execution.
+		 * @param statements
+		 *        The statements to add to the batch, or {@code null} if they have already been added.
+		 * @return The exception thrown by the execution, or {@code null} if it succeeded.
+		 */
+		private SQLException executeWithSavepoint(OpenStatement os, List<T> statements) throws SQLException {
+			final Savepoint savepoint = cnx.setSavepoint();
+			try {
+				if (statements != null) {
+					for (final T st : statements) {
+						st.bind(os.ps, new IntSequence(1));
+						os.ps.addBatch();
+					}
+				}
+				final int[] nRows_array = os.ps.executeBatch();
+				nRows = addRowCounts(nRows, getNRowsModifiedByBatch(nRows_array));
+			} catch (final SQLException e) {
+				cnx.rollback(savepoint);
+				os.ps.clearBatch();
+				return e;
+			}
+			cnx.releaseSavepoint(savepoint);
+			return null;
+		}
+
+		/**
+		 * Execute the pending rows, then commit.
+		 */
+		public void commit() throws SQLException {
+			flush();
+			doCommit(cnx);
+			commitCount++;
+			if (checkpointFile != null) getCheckpoint().write(checkpointFile);
+		}
+
+		/**
+		 * The checkpoint corresponding to the statements consumed so far, including the statements committed by a
+		 * previous execution.
+		 */
+		public BatchCheckpoint getCheckpoint() {
+			if (initialCheckpoint == null) return new BatchCheckpoint(count.get(), nRows);
+			return new BatchCheckpoint(initialOffset + count.get(),
+					addRowCounts(initialCheckpoint.getRowCount(), nRows));
+		}
+
+		private void close(OpenStatement os) throws SQLException {
+			afterExecution(os.ps);
+			BatchStatementOperation.close(os.ps);
+		}
+
+		public void close() throws SQLException {
+			try {
+				for (final OpenStatement os : openStatements.values()) {
+					close(os);
+				}
+			} finally {
+				openStatements.clear();
+			}
+		}
+	}
+
+	/**
+	 * Consumes the statements of one partition on its own connection.
+	 */
+	private class Worker implements Runnable {
+		private final int id;
+		private final BlockingQueue<Object> queue;
+		private final AtomicReference<Throwable> failure;
+		private ParallelBatchResult.WorkerStats stats;
+
+		public Worker(int id, int queueCapacity, AtomicReference<Throwable> failure) {
+			this.id = id;
+			this.queue = new ArrayBlockingQueue<>(queueCapacity);
+			this.failure = failure;
+		}
+
+		@Override
+		public void run() {
+			final long start = System.nanoTime();
+			Connection cnx = null;
+			Batch batch = null;
+			boolean endOfStream = false;
+			try {
+				cnx = cnxProvider.borrow();
+				batch = new Batch(cnx);
+				final SQLConsumer<T> _consumer = batch::accept;
+				final Consumer<T> consumer = _consumer.uncheck();
+				while (true) {
+					final Object item = queue.take();
+					if (item == END_OF_STREAM) {
+						endOfStream = true;
+						break;
+					}
+					// once the execution has failed or has been cancelled, the queue is drained so that the producer
+					// is never blocked.
+					if (failure.get() != null || cancelRequested.get()) continue;
+					@SuppressWarnings("unchecked")
+					final T st = (T) item;
+					consumer.accept(st);
+				}
+				if (failure.get() == null && !cancelRequested.get()) batch.commit();
+			} catch (final CancellationException e) {
+				if (!endOfStream) drain();
+			} catch (final Throwable e) {
+				failure.compareAndSet(null, e);
+				if (!endOfStream) drain();
+			} finally {
+				try {
+					if (batch != null) batch.close();
+				} catch (final SQLException e) {
+					failure.compareAndSet(null, e);
+				}
+				// if the connection was already committed, roll back should be a no op.
+				cnxProvider.rollback(cnx);
+				cnxProvider.giveBack(cnx);
+				if (batch != null) {
+					stats = new ParallelBatchResult.WorkerStats(id, batch.count.get(), batch.nRows, batch.commitCount,
+							System.nanoTime() - start);
+				} else {
+					stats = new ParallelBatchResult.WorkerStats(id, 0, 0, 0, System.nanoTime() - start);
+				}
+			}
+		}
+
+		private void drain() {
+			try {
+				while (queue.take() != END_OF_STREAM) {
+					// discard
+				}
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		public void put(Object item) {
+			try {
+				queue.put(item);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new CancellationException("Interrupted while waiting for worker " + id);
+			}
+		}
+
+		/**
+		 * Send the end of stream to the worker, unless it has already terminated. Interruptions are deferred until the
+		 * end of stream has been sent, so that the worker always terminates.
+		 */
+		public void putEndOfStream(Future<?> future) {
+			boolean interrupted = false;
+			try {
+				while (!future.isDone()) {
+					try {
+						if (queue.offer(END_OF_STREAM, 100, TimeUnit.MILLISECONDS)) return;
+					} catch (final InterruptedException e) {
+						interrupted = true;
+					}
+				}
+			} finally {
+				if (interrupted) Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Execute the statements in parallel, as configured by {@link #setParallelism} and {@link #setPartitioner}.
+	 * <p>
+	 * Each worker borrows its own connection from the connection provider, and commits the statements of its
+	 * partition independently of the other workers: if a worker fails, the rows already committed by the other workers
+	 * are not rolled back.
+	 * @return The total number of modified rows, and statistics for each worker.
+	 */
+	public ParallelBatchResult executeParallelAndCommit() {
+		if (checkpointFile != null) throw new IllegalStateException("Checkpoints are not supported in parallel mode");
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+		final List<Worker> workers = new ArrayList<>(workerCount);
+		for (int i = 0; i < workerCount; i++) {
+			workers.add(new Worker(i, queueCapacity, failure));
+		}
+		final ExecutorService executor = Executors.newFixedThreadPool(workerCount,
+				daemonThreads("fjdbc-batch-worker"));
+		final List<Future<?>> futures = new ArrayList<>(workerCount);
+		try {
+			workers.forEach(w -> futures.add(executor.submit(w)));
+			final Iterator<T> it = statements.iterator();
+			int next = 0;
+			while (it.hasNext() && failure.get() == null && !cancelRequested.get()) {
+				final T st = it.next();
+				final int workerIndex;
+				if (partitioner == null) {
+					workerIndex = next;
+					next = (next + 1) % workerCount;
+				} else {
+					workerIndex = Math.floorMod(Objects.hashCode(partitioner.apply(st)), workerCount);
+				}
+				workers.get(workerIndex).put(st);
+			}
+		} catch (final Throwable e) {
+			failure.compareAndSet(null, e);
 		} finally {
-			close(ps[0]);
-			statements.close();
+			try {
+				for (int i = 0; i < futures.size(); i++) {
+					workers.get(i).putEndOfStream(futures.get(i));
+				}
+				joinWorkers(futures, executor, failure);
+			} finally {
+				executor.shutdown();
+				statements.close();
+			}
+		}
+		if (cancelRequested.get()) reportCancellation();
+
+		final Throwable e = failure.get();
+		if (e instanceof SQLException) {
+			throw new RuntimeSQLException("Error executing the stream of SQL statements", (SQLException) e);
+		} else if (e instanceof RuntimeException) {
+			throw (RuntimeException) e;
+		} else if (e instanceof Error) {
+			throw (Error) e;
+		}
+		final List<ParallelBatchResult.WorkerStats> stats = workers.stream().map(w -> w.stats)
+				.collect(Collectors.toList());
+		return new ParallelBatchResult(stats);
+	}
+
+	/**
+	 * Wait for the termination of the workers. If the current thread is interrupted, the workers are interrupted (which
+	 * makes them roll back and release their connection), and the wait goes on.
+	 */
+	private static void joinWorkers(List<Future<?>> futures, ExecutorService executor,
+			AtomicReference<Throwable> failure) {
+		boolean interrupted = false;
+		for (final Future<?> f : futures) {
+			while (true) {
+				try {
+					f.get();
+					break;
+				} catch (final InterruptedException e) {
+					interrupted = true;
+					executor.shutdownNow();
+				} catch (final ExecutionException e) {
+					failure.compareAndSet(null, e.getCause());
+					break;
+				}
+			}
 		}
-		return nRows[0];
+		if (interrupted) Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * Notify the listener of the cancellation, once.
+	 */
+	private void reportCancellation() {
+		if (listener != null && cancellationReported.compareAndSet(false, true)) listener.cancelled();
+	}
+
+	private void doCommit(Connection cnx) throws SQLException {
+		final long start = listener == null ? 0 : System.nanoTime();
+		cnxProvider.commit(cnx);
+		if (listener != null) listener.committed(System.nanoTime() - start);
+	}
+
+	private void handleError(SQLException e, T statement) {
+		if (listener != null) listener.error(e);
+		errorHandler.accept(e, statement);
 	}
 
 	private void beforeExecution(final PreparedStatement ps) throws SQLException {
@@ -126,7 +741,17 @@ public class BatchStatementOperation<T extends SqlFragment> implements Statement
 		}
 	}
 
-	private int getNRowsModifiedByBatch(int[] modifiedRows) {
+	/**
+	 * Add the row counts of two batches. {@link Statement#EXECUTE_FAILED} and {@link Statement#SUCCESS_NO_INFO} are
+	 * propagated, in this order of precedence.
+	 */
+	static int addRowCounts(int a, int b) {
+		if (a == Statement.EXECUTE_FAILED || b == Statement.EXECUTE_FAILED) return Statement.EXECUTE_FAILED;
+		if (a == Statement.SUCCESS_NO_INFO || b == Statement.SUCCESS_NO_INFO) return Statement.SUCCESS_NO_INFO;
+		return a + b;
+	}
+
+	private static int getNRowsModifiedByBatch(int[] modifiedRows) {
 		int sum = 0;
 		for (final int r : modifiedRows) {
 			if (r == Statement.SUCCESS_NO_INFO) {
@@ -140,16 +765,26 @@ public class BatchStatementOperation<T extends SqlFragment> implements Statement
 		return sum;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * If the parallelism is greater than 1, this is equivalent to {@code executeParallelAndCommit().getRowCount()}.
+	 */
 	@Override
 	public int executeAndCommit() {
+		if (workerCount > 1) return executeParallelAndCommit().getRowCount();
 		Connection cnx = null;
 		try {
 			cnx = cnxProvider.borrow();
 			final int modifiedRows = execute(cnx);
-			cnxProvider.commit(cnx);
+			doCommit(cnx);
+			// the load is complete: the next execution must start from the beginning.
+			if (checkpointFile != null && !cancelRequested.get()) Files.deleteIfExists(checkpointFile);
 			return modifiedRows;
 		} catch (final SQLException e) {
 			throw new RuntimeSQLException("Error executing the stream of SQL statements", e);
+		} catch (final IOException e) {
+			throw new UncheckedIOException("Cannot delete checkpoint file " + checkpointFile, e);
 		} finally {
 			// if the connection was already committed, roll back should be a no op.
 			cnxProvider.rollback(cnx);
@@ -157,6 +792,139 @@ public class BatchStatementOperation<T extends SqlFragment> implements Statement
 		}
 	}
 
+	/**
+	 * Set the policy that decides when the accumulated rows are sent to the database. This replaces the
+	 * {@code executeEveryNRow} parameter of the constructor.
+	 * <p>
+	 * Policies can be combined with {@link BatchFlushPolicy#anyOf}. Use an {@link AdaptiveBatchSize} policy to tune
+	 * the batch size automatically.
+	 */
+	public BatchStatementOperation<T> setFlushPolicy(BatchFlushPolicy flushPolicy) {
+		if (flushPolicy == null) throw new IllegalArgumentException();
+		this.flushPolicy = flushPolicy;
+		return this;
+	}
+
+	/**
+	 * Set the function used to estimate the size in bytes of the values bound by each statement. It is required by
+	 * {@link BatchFlushPolicy#everyNBytes}.
+	 */
+	public BatchStatementOperation<T> setRowWeigher(ToLongFunction<? super T> rowWeigher) {
+		this.rowWeigher = rowWeigher;
+		return this;
+	}
+
+	/**
+	 * By default, all statements are assumed to have the same SQL, and only the SQL of the first statement is
+	 * generated. Nothing checks that the following statements actually have the same SQL.
+	 * <p>
+	 * This method enables grouping by shape: the shape of each statement (see {@link SqlFragment#getShape()}) is
+	 * generated, and each statement is added to the JDBC batch of its shape. At most {@code maxOpenStatements}
+	 * {@code PreparedStatement}s are kept open; when a new shape is encountered and the limit is reached, all pending
+	 * rows are executed and the least recently used statement is closed.
+	 * <p>
+	 * All open batches are executed together, as requested by the flush policy and before each commit. The order of
+	 * statements is preserved within a shape, but not across shapes: batches are executed in the order of their oldest
+	 * pending statement. Use {@code maxOpenStatements = 1} to execute the statements strictly in order.
+	 */
+	public BatchStatementOperation<T> groupByShape(int maxOpenStatements) {
+		if (maxOpenStatements <= 0) throw new IllegalArgumentException("maxOpenStatements must be > 0");
+		this.maxOpenStatements = maxOpenStatements;
+		return this;
+	}
+
+	/**
+	 * Build the statements on a separate thread, so that it overlaps with the JDBC calls: a producer thread consumes
+	 * the input stream by chunks of {@code chunkSize} statements (generating their shapes if they are grouped by
+	 * shape), while the calling thread binds and executes the previous chunks.
+	 * <p>
+	 * At most {@code maxInFlightChunks} chunks are waiting to be executed; the producer blocks when this limit is
+	 * reached.
+	 * <p>
+	 * Pipelining only applies to sequential execution (see {@link #setParallelism}). The input stream is consumed by
+	 * the producer thread, so its operations must not depend on the calling thread.
+	 */
+	public BatchStatementOperation<T> setPipelining(int chunkSize, int maxInFlightChunks) {
+		if (chunkSize <= 0) throw new IllegalArgumentException("chunkSize must be > 0");
+		if (maxInFlightChunks <= 0) throw new IllegalArgumentException("maxInFlightChunks must be > 0");
+		this.pipelineChunkSize = chunkSize;
+		this.maxInFlightChunks = maxInFlightChunks;
+		return this;
+	}
+
+	/**
+	 * Make the execution resumable: after each commit (see {@code commitEveryNRow}), the number of committed
+	 * statements and modified rows is written atomically to {@code checkpointFile}.
+	 * <p>
+	 * If the file exists when the execution starts, the statements already committed are skipped. The input stream
+	 * must therefore produce the same statements, in the same order, on each execution. The file is deleted when
+	 * {@link #executeAndCommit()} completes successfully.
+	 * <p>
+	 * The returned row count only includes the rows modified by the current execution. Checkpoints are not supported
+	 * in parallel mode.
+	 */
+	public BatchStatementOperation<T> setCheckpointFile(Path checkpointFile) {
+		this.checkpointFile = checkpointFile;
+		return this;
+	}
+
+	/**
+	 * Isolate the failing statements instead of aborting the whole batch: if the execution of a batch fails, the
+	 * connection is rolled back to a savepoint set before the execution, and the batch is split recursively to find the
+	 * failing statements. Each failing statement is sent to the error handler (see {@link #setErrorHandler}), while the
+	 * other statements are still executed in batches.
+	 * <p>
+	 * The statements of the pending batch are kept in memory: the batch is executed as soon as it holds
+	 * {@code maxBufferedRows} statements, regardless of the flush policy. The driver must support savepoints, and auto
+	 * commit must be disabled.
+	 */
+	public BatchStatementOperation<T> setFailureIsolation(int maxBufferedRows) {
+		if (maxBufferedRows <= 0) throw new IllegalArgumentException("maxBufferedRows must be > 0");
+		this.maxIsolatedRows = maxBufferedRows;
+		return this;
+	}
+
+	/**
+	 * Execute the statements in parallel with {@code workerCount} workers. Each worker has its own connection and
+	 * {@code PreparedStatement}, and is fed from a bounded queue of {@code queueCapacity} statements.
+	 * <p>
+	 * The parallelism only applies to {@link #executeAndCommit()} and {@link #executeParallelAndCommit()}:
+	 * {@link #execute(Connection)} always executes sequentially on the provided connection.
+	 * <p>
+	 * The flush policy and {@code commitEveryNRow} apply to each worker separately.
+	 */
+	public BatchStatementOperation<T> setParallelism(int workerCount, int queueCapacity) {
+		if (workerCount <= 0) throw new IllegalArgumentException("workerCount must be > 0");
+		if (queueCapacity <= 0) throw new IllegalArgumentException("queueCapacity must be > 0");
+		this.workerCount = workerCount;
+		this.queueCapacity = queueCapacity;
+		return this;
+	}
+
+	/**
+	 * In parallel mode, send statements having the same key to the same worker, so that concurrent workers never
+	 * modify the same rows (which could cause deadlocks).
+	 * <p>
+	 * If not set, statements are distributed to the workers in a round-robin fashion.
+	 * @param partitioner
+	 *        Extract the key of a statement. Keys are compared using {@link Object#hashCode()}.
+	 */
+	public BatchStatementOperation<T> setPartitioner(Function<? super T, ?> partitioner) {
+		this.partitioner = partitioner;
+		return this;
+	}
+
+	/**
+	 * Set the listener receiving the events of the execution (for instance a {@link BatchMetrics} instance).
+	 * <p>
+	 * Events are only sent when a batch is executed, committed or fails, so the listener adds no cost to the
+	 * processing of each row.
+	 */
+	public BatchStatementOperation<T> setListener(BatchListener listener) {
+		this.listener = listener;
+		return this;
+	}
+
 	public void setErrorHandler(BiConsumer<SQLException, T> errorHandler) {
 		this.errorHandler = errorHandler;
 	}
@@ -0,0 +1,40 @@
+package com.github.fjdbc.sql;
+
+/**
+ * How {@code IN} conditions on a collection of values are rendered (see {@link SqlBuilder#setInListStrategy}).
+ */
+public enum InListStrategy {
+	/**
+	 * One '?' placeholder per value: {@code col in (?, ?, ?)}. Lists of more than 1000 values are split into several
+	 * {@code IN} conditions joined with {@code OR}. Supported by all databases.
+	 */
+	PLACEHOLDERS,
+	/**
+	 * The whole collection is bound as a single {@link java.sql.Array}, e.g {@code col = any(?)} on PostgreSQL. The SQL
+	 * does not depend on the number of values.
+	 * <p>
+	 * Falls back to {@link #PLACEHOLDERS} if the dialect or the type of the values does not support arrays (see
+	 * {@link SqlDialect#getArrayInCondition(String)}).
+	 */
+	ARRAY,
+	/**
+	 * The values are bound as rows of a derived table: {@code col in (select k from (values (?), (?)) as v(k))}.
+	 * <p>
+	 * Falls back to {@link #PLACEHOLDERS} if the dialect does not support it (see
+	 * {@link SqlDialect#getValuesInCondition(String, int)}). Building the condition fails with an
+	 * {@code IllegalArgumentException} if there are more values than bind parameters allowed by the dialect (see
+	 * {@link SqlDialect#getMaxBindParameters()}).
+	 */
+	VALUES,
+	/**
+	 * The values are inserted with a batch statement into a session-scoped temporary table when the statement is bound,
+	 * and the condition becomes {@code col in (select k from <temporary table> where id = ?)}. Suited to hundreds of
+	 * thousands of values, since the database can use a hash join.
+	 * <p>
+	 * The table is created on first use by each connection, and its rows are deleted at the end of the transaction, so
+	 * auto-commit must be disabled: binding the statement fails with an {@code IllegalStateException} otherwise. Falls
+	 * back to {@link #VALUES} if the dialect does not support it (see
+	 * {@link SqlDialect#getCreateTempTableSql(String, String)}).
+	 */
+	TEMP_TABLE
+}
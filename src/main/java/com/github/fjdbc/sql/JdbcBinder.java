@@ -0,0 +1,139 @@
+package com.github.fjdbc.sql;
+
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.PreparedStatement;
+import java.sql.Ref;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The {@code PreparedStatement} setter to use for each supported JDBC type.
+ * <p>
+ * The binder of a parameter is resolved once (see {@link #of(Class)}), so that binding a value is a single switch
+ * instead of a chain of type comparisons.
+ */
+enum JdbcBinder {
+	STRING(String.class, "setString"),
+	BIG_DECIMAL(BigDecimal.class, "setBigDecimal"),
+	BOOLEAN(Boolean.class, "setBoolean"),
+	INTEGER(Integer.class, "setInt"),
+	LONG(Long.class, "setLong"),
+	FLOAT(Float.class, "setFloat"),
+	DOUBLE(Double.class, "setDouble"),
+	BYTES(byte[].class, "setBytes"),
+	DATE(java.sql.Date.class, "setDate"),
+	TIME(Time.class, "setTime"),
+	TIMESTAMP(Timestamp.class, "setTimestamp"),
+	CLOB(Clob.class, "setClob"),
+	BLOB(Blob.class, "setBlob"),
+	ARRAY(Array.class, "setArray"),
+	REF(Ref.class, "setRef"),
+	URL_(URL.class, "setURL");
+
+	private static final Map<Class<?>, JdbcBinder> byType = new HashMap<>();
+	private static final Map<String, JdbcBinder> bySetter = new HashMap<>();
+
+	static {
+		for (final JdbcBinder binder : values()) {
+			byType.put(binder.type, binder);
+			bySetter.put(binder.setter, binder);
+		}
+	}
+
+	private final Class<?> type;
+	/**
+	 * The name of the {@code PreparedStatement} method.
+	 */
+	private final String setter;
+
+	JdbcBinder(Class<?> type, String setter) {
+		this.type = type;
+		this.setter = setter;
+	}
+
+	Class<?> getType() {
+		return type;
+	}
+
+	/**
+	 * Bind a non-null value.
+	 * <p>
+	 * A single method switching on the constant, rather than a method per constant: the call site binding the
+	 * parameters stays monomorphic whatever the mix of types.
+	 */
+	final void set(PreparedStatement ps, int index, Object value) throws SQLException {
+		switch (this) {
+		case STRING:
+			ps.setString(index, (String) value);
+			break;
+		case BIG_DECIMAL:
+			ps.setBigDecimal(index, (BigDecimal) value);
+			break;
+		case BOOLEAN:
+			ps.setBoolean(index, (Boolean) value);
+			break;
+		case INTEGER:
+			ps.setInt(index, (Integer) value);
+			break;
+		case LONG:
+			ps.setLong(index, (Long) value);
+			break;
+		case FLOAT:
+			ps.setFloat(index, (Float) value);
+			break;
+		case DOUBLE:
+			ps.setDouble(index, (Double) value);
+			break;
+		case BYTES:
+			ps.setBytes(index, (byte[]) value);
+			break;
+		case DATE:
+			ps.setDate(index, (java.sql.Date) value);
+			break;
+		case TIME:
+			ps.setTime(index, (Time) value);
+			break;
+		case TIMESTAMP:
+			ps.setTimestamp(index, (Timestamp) value);
+			break;
+		case CLOB:
+			ps.setClob(index, (Clob) value);
+			break;
+		case BLOB:
+			ps.setBlob(index, (Blob) value);
+			break;
+		case ARRAY:
+			ps.setArray(index, (Array) value);
+			break;
+		case REF:
+			ps.setRef(index, (Ref) value);
+			break;
+		case URL_:
+			ps.setURL(index, (URL) value);
+			break;
+		default:
+			throw new IllegalStateException(name());
+		}
+	}
+
+	/**
+	 * Return the binder of the specified type, or {@code null} if the type is not supported.
+	 */
+	static JdbcBinder of(Class<?> type) {
+		return byType.get(type);
+	}
+
+	/**
+	 * Return the binder calling the specified {@code PreparedStatement} method, or {@code null} if there is none.
+	 */
+	static JdbcBinder ofSetter(String setter) {
+		return bySetter.get(setter);
+	}
+}
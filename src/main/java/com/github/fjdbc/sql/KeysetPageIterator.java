@@ -0,0 +1,106 @@
+package com.github.fjdbc.sql;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.github.fjdbc.query.ResultSetExtractor;
+import com.github.fjdbc.sql.SqlBuilder.SqlSelectBuilder;
+
+/**
+ * Iterate over the pages of a query using keyset pagination (see {@link SqlSelectBuilder#seekAfter}).
+ * <p>
+ * The next page is fetched on a thread of the executor while the caller processes the current page, so that at most one
+ * page is prefetched.
+ * @param <T>
+ *        The type of the rows.
+ */
+public class KeysetPageIterator<T> implements Iterator<List<T>>, AutoCloseable {
+	private final Supplier<SqlSelectBuilder> querySupplier;
+	private final List<String> orderItems;
+	private final int pageSize;
+	private final ResultSetExtractor<T> extractor;
+	private final Function<? super T, List<?>> keyExtractor;
+	private final Executor executor;
+	/**
+	 * The page being fetched, or null if there are no more pages.
+	 */
+	private CompletableFuture<List<T>> nextPage;
+	private List<T> fetchedPage;
+
+	/**
+	 * @param querySupplier
+	 *        Create the query, without the order by clause. A new query is created for each page.
+	 * @param orderItems
+	 *        The {@code ORDER BY} items. They must identify a row uniquely.
+	 * @param pageSize
+	 *        The maximum number of rows per page.
+	 * @param extractor
+	 *        Extract the rows from the result set.
+	 * @param keyExtractor
+	 *        Extract the values of the order by items from a row.
+	 * @param executor
+	 *        The executor used to fetch the pages.
+	 */
+	public KeysetPageIterator(Supplier<SqlSelectBuilder> querySupplier, List<String> orderItems, int pageSize,
+			ResultSetExtractor<T> extractor, Function<? super T, List<?>> keyExtractor, Executor executor) {
+		if (pageSize <= 0) throw new IllegalArgumentException("pageSize must be > 0");
+		this.querySupplier = querySupplier;
+		this.orderItems = orderItems;
+		this.pageSize = pageSize;
+		this.extractor = extractor;
+		this.keyExtractor = keyExtractor;
+		this.executor = executor;
+		this.nextPage = fetch(null);
+	}
+
+	private CompletableFuture<List<T>> fetch(List<?> lastValues) {
+		return querySupplier.get().seekAfter(orderItems, lastValues).fetchFirst(pageSize).toListAsync(extractor,
+				executor);
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (fetchedPage != null) return true;
+		if (nextPage == null) return false;
+		final List<T> page;
+		try {
+			page = nextPage.join();
+		} catch (final CompletionException e) {
+			nextPage = null;
+			if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+			throw e;
+		}
+		if (page.isEmpty()) {
+			nextPage = null;
+			return false;
+		}
+		fetchedPage = page;
+		// prefetch the next page while the caller processes this one
+		nextPage = page.size() < pageSize ? null : fetch(keyExtractor.apply(page.get(page.size() - 1)));
+		return true;
+	}
+
+	@Override
+	public List<T> next() {
+		if (!hasNext()) throw new NoSuchElementException();
+		final List<T> res = fetchedPage;
+		fetchedPage = null;
+		return res;
+	}
+
+	/**
+	 * Stop fetching pages. A page being fetched is discarded.
+	 */
+	@Override
+	public void close() {
+		if (nextPage != null) nextPage.cancel(false);
+		nextPage = null;
+		fetchedPage = null;
+	}
+}
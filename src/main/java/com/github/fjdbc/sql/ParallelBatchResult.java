@@ -0,0 +1,89 @@
+package com.github.fjdbc.sql;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of {@link BatchStatementOperation#executeParallelAndCommit()}.
+ */
+public class ParallelBatchResult {
+	private final List<WorkerStats> workerStats;
+	private final int rowCount;
+
+	public ParallelBatchResult(List<WorkerStats> workerStats) {
+		this.workerStats = Collections.unmodifiableList(workerStats);
+		int sum = 0;
+		for (final WorkerStats s : workerStats) {
+			sum = BatchStatementOperation.addRowCounts(sum, s.getRowCount());
+		}
+		this.rowCount = sum;
+	}
+
+	/**
+	 * The total number of rows modified by all workers, or {@link java.sql.Statement#SUCCESS_NO_INFO} if the driver
+	 * did not report it.
+	 */
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	public List<WorkerStats> getWorkerStats() {
+		return workerStats;
+	}
+
+	@Override
+	public String toString() {
+		return "rowCount=" + rowCount + ", workers=" + workerStats;
+	}
+
+	/**
+	 * Execution statistics of a single worker.
+	 */
+	public static class WorkerStats {
+		private final int workerId;
+		private final int statementCount;
+		private final int rowCount;
+		private final int commitCount;
+		private final long elapsedNanos;
+
+		public WorkerStats(int workerId, int statementCount, int rowCount, int commitCount, long elapsedNanos) {
+			this.workerId = workerId;
+			this.statementCount = statementCount;
+			this.rowCount = rowCount;
+			this.commitCount = commitCount;
+			this.elapsedNanos = elapsedNanos;
+		}
+
+		public int getWorkerId() {
+			return workerId;
+		}
+
+		/**
+		 * The number of statements received by the worker.
+		 */
+		public int getStatementCount() {
+			return statementCount;
+		}
+
+		/**
+		 * The number of rows modified by the worker.
+		 */
+		public int getRowCount() {
+			return rowCount;
+		}
+
+		public int getCommitCount() {
+			return commitCount;
+		}
+
+		public long getElapsedNanos() {
+			return elapsedNanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("{worker=%d, statements=%d, rows=%d, commits=%d, elapsedMs=%d}", workerId,
+					statementCount, rowCount, commitCount, elapsedNanos / 1_000_000);
+		}
+	}
+}
@@ -0,0 +1,191 @@
+package com.github.fjdbc.sql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Merge the streams of several queries executed in parallel into a single stream.
+ * <p>
+ * Each source stream is consumed by a task of the executor, which pushes the rows into a bounded buffer. The sources
+ * are opened by the terminal operation of the merged stream, and closed when they are exhausted or when the merged
+ * stream is closed.
+ */
+class ParallelQueryStream {
+	private static final Object END = new Object();
+	private static final Object NULL = new Object();
+	private static final long POLL_MILLIS = 100;
+
+	private ParallelQueryStream() {
+	}
+
+	/**
+	 * @param sources
+	 *        Open the stream of each query.
+	 * @param ordered
+	 *        If {@code true}, all rows of a source are returned before the rows of the next source. Otherwise, rows are
+	 *        returned as soon as they are available. In ordered mode, the executor must run tasks in submission order,
+	 *        otherwise a later source could hold all threads while the source being read waits for one.
+	 * @param bufferSize
+	 *        The maximum number of rows buffered per source. A source is paused when its buffer is full.
+	 */
+	public static <T> Stream<T> merge(List<? extends Supplier<? extends Stream<? extends T>>> sources,
+			Executor executor, boolean ordered, int bufferSize) {
+		if (bufferSize <= 0) throw new IllegalArgumentException("bufferSize must be > 0");
+		final Merger<T> merger = new Merger<>(new ArrayList<>(sources), executor, ordered, bufferSize);
+		final int characteristics = ordered ? Spliterator.ORDERED : 0;
+		final Stream<T> res = StreamSupport.stream(() -> {
+			merger.start();
+			return Spliterators.spliteratorUnknownSize(merger, characteristics);
+		}, characteristics, false);
+		return res.onClose(merger::close);
+	}
+
+	private static class Failure {
+		public final Throwable cause;
+
+		public Failure(Throwable cause) {
+			this.cause = cause;
+		}
+	}
+
+	private static class Merger<T> implements Iterator<T> {
+		private final List<Supplier<? extends Stream<? extends T>>> sources;
+		private final Executor executor;
+		private final boolean ordered;
+		/**
+		 * In ordered mode, one queue per source. Otherwise, a single queue shared by all sources.
+		 */
+		private final List<BlockingQueue<Object>> queues;
+		private final List<CompletableFuture<Void>> tasks = new ArrayList<>();
+		private volatile boolean closed;
+		private volatile Failure failure;
+		/**
+		 * In ordered mode, the index of the queue being read. Otherwise, the number of finished sources.
+		 */
+		private int position;
+		private Object next;
+
+		public Merger(List<Supplier<? extends Stream<? extends T>>> sources, Executor executor, boolean ordered,
+				int bufferSize) {
+			this.sources = sources;
+			this.executor = executor;
+			this.ordered = ordered;
+			if (ordered) {
+				queues = new ArrayList<>();
+				for (int i = 0; i < sources.size(); i++) {
+					queues.add(new ArrayBlockingQueue<>(bufferSize));
+				}
+			} else {
+				final int capacity = (int) Math.min(Integer.MAX_VALUE, (long) bufferSize * Math.max(1, sources.size()));
+				queues = Collections.nCopies(sources.size(), new ArrayBlockingQueue<>(capacity));
+			}
+		}
+
+		public synchronized void start() {
+			if (!tasks.isEmpty() || closed) throw new IllegalStateException("The stream has already been consumed");
+			for (int i = 0; i < sources.size(); i++) {
+				final int sourceIndex = i;
+				tasks.add(CompletableFuture.runAsync(() -> produce(sourceIndex), executor));
+			}
+		}
+
+		private void produce(int sourceIndex) {
+			// do not open the source if the stream was closed while this task was waiting for a thread
+			if (closed) return;
+			final BlockingQueue<Object> queue = queues.get(sourceIndex);
+			try (Stream<? extends T> stream = sources.get(sourceIndex).get()) {
+				final Iterator<? extends T> rows = stream.iterator();
+				while (!closed && rows.hasNext()) {
+					final T row = rows.next();
+					put(queue, row == null ? NULL : row);
+				}
+				put(queue, END);
+			} catch (final Throwable e) {
+				final Failure _failure = new Failure(e);
+				if (failure == null) failure = _failure;
+				put(queue, _failure);
+			}
+		}
+
+		private void put(BlockingQueue<Object> queue, Object o) {
+			try {
+				while (!closed && !queue.offer(o, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+					// wait until the consumer takes a row, or closes the stream
+				}
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new CancellationException("Interrupted while buffering a row");
+			}
+		}
+
+		private Object take(BlockingQueue<Object> queue) {
+			try {
+				while (true) {
+					final Object o = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+					if (o != null) return o;
+					// in ordered mode, fail fast if a source that is not being read has failed
+					final Failure _failure = failure;
+					if (_failure != null) return _failure;
+				}
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				close();
+				throw new CancellationException("Interrupted while waiting for the next row");
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (next == null) {
+				if (closed || position == sources.size()) return false;
+				final Object o = take(queues.get(ordered ? position : 0));
+				if (o == END) {
+					position++;
+				} else if (o instanceof Failure) {
+					close();
+					final Throwable cause = ((Failure) o).cause;
+					if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+					if (cause instanceof Error) throw (Error) cause;
+					throw new IllegalStateException(cause);
+				} else {
+					next = o;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public T next() {
+			if (!hasNext()) throw new NoSuchElementException();
+			final Object res = next;
+			next = null;
+			return res == NULL ? null : (T) res;
+		}
+
+		/**
+		 * Stop the sources. Each running source closes its stream (and releases its connection) after its current row.
+		 * The sources that have not been opened yet are not opened.
+		 */
+		public synchronized void close() {
+			closed = true;
+			for (final CompletableFuture<Void> task : tasks) {
+				task.cancel(false);
+			}
+		}
+	}
+}
@@ -0,0 +1,203 @@
+package com.github.fjdbc.sql;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.github.fjdbc.query.ResultSetExtractor;
+import com.github.fjdbc.query.SingleRowExtractor;
+import com.github.fjdbc.sql.SqlBuilder.CompositeConditionBuilder;
+import com.github.fjdbc.sql.SqlBuilder.Condition;
+import com.github.fjdbc.sql.SqlBuilder.LogicalOperator;
+import com.github.fjdbc.sql.SqlBuilder.RelationalOperator;
+import com.github.fjdbc.sql.SqlBuilder.SimpleCondition;
+import com.github.fjdbc.sql.SqlBuilder.SqlRaw;
+import com.github.fjdbc.sql.SqlBuilder.SqlSelectBuilder;
+
+/**
+ * Split a query into ranges of a numeric or date column, and execute the ranges in parallel, each on its own
+ * connection.
+ * <p>
+ * The ranges are half-open ({@code col >= ? and col < ?}), the first and last ranges are unbounded, and the rows having
+ * a {@code NULL} split column are returned by an additional range. Therefore each row is returned exactly once, even if
+ * the bounds are not accurate.
+ */
+public class ParallelScan {
+	private final SqlBuilder sql;
+	private final Supplier<SqlSelectBuilder> querySupplier;
+	private final String splitColumn;
+	private final int partitionCount;
+	private Object min;
+	private Object max;
+	private boolean ordered;
+	private int bufferSize = 1000;
+
+	/**
+	 * @see SqlBuilder#parallelScan(Supplier, String, int)
+	 */
+	ParallelScan(SqlBuilder sql, Supplier<SqlSelectBuilder> querySupplier, String splitColumn, int partitionCount) {
+		if (partitionCount <= 0) throw new IllegalArgumentException("partitionCount must be > 0");
+		this.sql = sql;
+		this.querySupplier = querySupplier;
+		this.splitColumn = splitColumn;
+		this.partitionCount = partitionCount;
+	}
+
+	/**
+	 * Split the range {@code [min, max]} instead of querying the minimum and maximum values of the split column.
+	 * @param _min
+	 *        A {@code Number}, {@code java.sql.Date} or {@code java.sql.Timestamp}.
+	 * @param _max
+	 *        A value of the same type as {@code _min}.
+	 */
+	public ParallelScan bounds(Object _min, Object _max) {
+		if (_min == null || _max == null) throw new IllegalArgumentException("Bounds must not be null");
+		this.min = _min;
+		this.max = _max;
+		return this;
+	}
+
+	/**
+	 * If {@code true}, the rows of a range are returned before the rows of the next range (and rows with a
+	 * {@code NULL} split column come last). Otherwise, rows are returned as soon as they are available. Default is
+	 * {@code false}.
+	 */
+	public ParallelScan ordered(boolean _ordered) {
+		this.ordered = _ordered;
+		return this;
+	}
+
+	/**
+	 * The maximum number of rows buffered per range. Default is 1000.
+	 */
+	public ParallelScan bufferSize(int _bufferSize) {
+		if (_bufferSize <= 0) throw new IllegalArgumentException("bufferSize must be > 0");
+		this.bufferSize = _bufferSize;
+		return this;
+	}
+
+	/**
+	 * The query returning the minimum and maximum values of the split column. The split column must be selected by the
+	 * query (under the same name, without table qualifier).
+	 */
+	SqlSelectBuilder getBoundsQuery() {
+		final String column = splitColumn.substring(splitColumn.lastIndexOf('.') + 1);
+		return sql.select("min(q." + column + ")", "max(q." + column + ")").from(querySupplier.get(), "q");
+	}
+
+	/**
+	 * Create the query of each range. If bounds have not been specified, they are queried first.
+	 */
+	public List<SqlSelectBuilder> getPartitionQueries() {
+		if (min == null) {
+			final List<Object[]> bounds = getBoundsQuery()
+					.toQuery((SingleRowExtractor<Object[]>) rs -> new Object[] { rs.getObject(1), rs.getObject(2) })
+					.toList();
+			if (bounds.isEmpty() || bounds.get(0)[0] == null) {
+				// empty table, or null split column in all rows
+				return Arrays.asList(querySupplier.get());
+			}
+			min = bounds.get(0)[0];
+			max = bounds.get(0)[1];
+		}
+
+		final List<Object> points = splitPoints(min, max, partitionCount);
+		final List<Condition> conditions = new ArrayList<>();
+		for (int i = 0; i <= points.size(); i++) {
+			final Condition lower = i == 0 ? null : compare(RelationalOperator.GTE, points.get(i - 1));
+			final Condition upper = i == points.size() ? null : compare(RelationalOperator.LT, points.get(i));
+			if (lower == null && upper == null) {
+				conditions.add(sql.condition(splitColumn).isNotNull());
+			} else if (lower == null || upper == null) {
+				conditions.add(lower == null ? upper : lower);
+			} else {
+				conditions.add(new CompositeConditionBuilder(Arrays.asList(lower, upper), LogicalOperator.AND));
+			}
+		}
+		conditions.add(sql.condition(splitColumn).isNull());
+		return conditions.stream().map(c -> querySupplier.get().where(c)).collect(Collectors.toList());
+	}
+
+	private Condition compare(RelationalOperator operator, Object value) {
+		return new SimpleCondition(new SqlRaw(splitColumn), operator, sql.parameterOf(value));
+	}
+
+	/**
+	 * Execute the ranges in parallel, and merge their rows into a single stream.
+	 * <p>
+	 * Each range holds a connection and a thread of the executor until it is exhausted. The stream must be closed to
+	 * release them early. In ordered mode, the executor must run tasks in submission order.
+	 */
+	public <T> Stream<T> toStream(ResultSetExtractor<T> extractor, Executor executor) {
+		final List<Supplier<Stream<T>>> sources = getPartitionQueries().stream()
+				.map(q -> (Supplier<Stream<T>>) () -> q.toStream(extractor)).collect(Collectors.toList());
+		return ParallelQueryStream.merge(sources, executor, ordered, bufferSize);
+	}
+
+	/**
+	 * Return the distinct points splitting the range {@code [_min, _max]} into {@code n} ranges of equal width.
+	 */
+	static List<Object> splitPoints(Object _min, Object _max, int n) {
+		final List<Object> res = new ArrayList<>();
+		if (_min instanceof java.util.Date && _max instanceof java.util.Date) {
+			final BigDecimal lo = BigDecimal.valueOf(((java.util.Date) _min).getTime());
+			final BigDecimal hi = BigDecimal.valueOf(((java.util.Date) _max).getTime());
+			for (final BigDecimal p : splitPoints(lo, hi, n, true)) {
+				final long millis = p.longValueExact();
+				if (_min instanceof Timestamp) {
+					res.add(new Timestamp(millis));
+				} else if (_min instanceof java.sql.Date) {
+					res.add(new java.sql.Date(millis));
+				} else {
+					throw new IllegalArgumentException("Unsupported type: " + _min.getClass());
+				}
+			}
+		} else if (_min instanceof Number && _max instanceof Number) {
+			final BigDecimal lo = toBigDecimal((Number) _min);
+			final BigDecimal hi = toBigDecimal((Number) _max);
+			final boolean integral = isIntegral(lo) && isIntegral(hi);
+			for (final BigDecimal p : splitPoints(lo, hi, n, integral)) {
+				final boolean fitsLong = integral && p.compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) <= 0
+						&& p.compareTo(BigDecimal.valueOf(Long.MIN_VALUE)) >= 0;
+				res.add(fitsLong ? (Object) p.longValueExact() : p);
+			}
+		} else {
+			throw new IllegalArgumentException(String.format("Unsupported bounds: %s, %s", _min, _max));
+		}
+		return res;
+	}
+
+	private static List<BigDecimal> splitPoints(BigDecimal lo, BigDecimal hi, int n, boolean integral) {
+		final List<BigDecimal> res = new ArrayList<>();
+		final BigDecimal width = hi.subtract(lo);
+		for (int i = 1; i < n; i++) {
+			BigDecimal p = lo.add(width.multiply(BigDecimal.valueOf(i)).divide(BigDecimal.valueOf(n), 10,
+					RoundingMode.FLOOR));
+			if (integral) p = p.setScale(0, RoundingMode.FLOOR);
+			// points are increasing; skip duplicates and points outside of the range
+			if (p.compareTo(lo) <= 0 || p.compareTo(hi) > 0) continue;
+			if (!res.isEmpty() && p.compareTo(res.get(res.size() - 1)) == 0) continue;
+			res.add(p);
+		}
+		return res;
+	}
+
+	private static BigDecimal toBigDecimal(Number n) {
+		if (n instanceof BigDecimal) return (BigDecimal) n;
+		if (n instanceof BigInteger) return new BigDecimal((BigInteger) n);
+		if (n instanceof Double || n instanceof Float) return BigDecimal.valueOf(n.doubleValue());
+		return BigDecimal.valueOf(n.longValue());
+	}
+
+	private static boolean isIntegral(BigDecimal d) {
+		return d.signum() == 0 || d.stripTrailingZeros().scale() <= 0;
+	}
+}
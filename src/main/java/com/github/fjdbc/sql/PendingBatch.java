@@ -0,0 +1,51 @@
+package com.github.fjdbc.sql;
+
+/**
+ * The rows added to a JDBC batch since it was last executed.
+ * <p>
+ * Instances are read by {@link BatchFlushPolicy} implementations to decide when the batch must be executed.
+ */
+public class PendingBatch {
+	private int rowCount;
+	private long estimatedBytes;
+	private long lastFlushNanos = System.nanoTime();
+
+	void rowAdded(long bytes) {
+		rowCount++;
+		estimatedBytes += bytes;
+	}
+
+	void flushed() {
+		rowCount = 0;
+		estimatedBytes = 0;
+		lastFlushNanos = System.nanoTime();
+	}
+
+	/**
+	 * The number of rows added to the batch since the last execution.
+	 */
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * The estimated size in bytes of the values bound since the last execution.
+	 * <p>
+	 * Always {@code 0} unless a row weigher has been set with
+	 * {@link BatchStatementOperation#setRowWeigher(java.util.function.ToLongFunction)}.
+	 */
+	public long getEstimatedBytes() {
+		return estimatedBytes;
+	}
+
+	/**
+	 * The time elapsed since the batch was last executed (or created), in nanoseconds.
+	 */
+	public long getNanosSinceLastFlush() {
+		return System.nanoTime() - lastFlushNanos;
+	}
+
+	public boolean isEmpty() {
+		return rowCount == 0;
+	}
+}
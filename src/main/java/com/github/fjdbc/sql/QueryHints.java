@@ -0,0 +1,55 @@
+package com.github.fjdbc.sql;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import com.github.fjdbc.SQLConsumer;
+
+/**
+ * JDBC settings applied to the statement of a query before it is executed.
+ */
+class QueryHints {
+	/**
+	 * {@code -1} means: use the default fetch size of the {@link SqlBuilder}.
+	 */
+	int fetchSize = -1;
+	int maxRows;
+	int queryTimeoutSeconds;
+	int resultSetType = ResultSet.TYPE_FORWARD_ONLY;
+	int resultSetConcurrency = ResultSet.CONCUR_READ_ONLY;
+	/**
+	 * Called after the other settings have been applied. May be null.
+	 */
+	SQLConsumer<Statement> beforeExecution;
+
+	QueryHints copy() {
+		final QueryHints res = new QueryHints();
+		res.fetchSize = fetchSize;
+		res.maxRows = maxRows;
+		res.queryTimeoutSeconds = queryTimeoutSeconds;
+		res.resultSetType = resultSetType;
+		res.resultSetConcurrency = resultSetConcurrency;
+		res.beforeExecution = beforeExecution;
+		return res;
+	}
+
+	int getFetchSize(int defaultFetchSize) {
+		return fetchSize >= 0 ? fetchSize : defaultFetchSize;
+	}
+
+	/**
+	 * Return {@code true} if {@link #apply} would change a freshly prepared statement.
+	 */
+	boolean hasStatementOptions(int defaultFetchSize) {
+		return getFetchSize(defaultFetchSize) > 0 || maxRows > 0 || queryTimeoutSeconds > 0 || beforeExecution != null;
+	}
+
+	void apply(Statement st, int defaultFetchSize) throws SQLException {
+		final int _fetchSize = getFetchSize(defaultFetchSize);
+		if (_fetchSize > 0) st.setFetchSize(_fetchSize);
+		if (maxRows > 0) st.setMaxRows(maxRows);
+		if (queryTimeoutSeconds > 0) st.setQueryTimeout(queryTimeoutSeconds);
+		if (beforeExecution != null) beforeExecution.accept(st);
+	}
+}
@@ -0,0 +1,158 @@
+package com.github.fjdbc.sql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.github.fjdbc.ConnectionProvider;
+import com.github.fjdbc.IntSequence;
+import com.github.fjdbc.PreparedStatementBinder;
+import com.github.fjdbc.RuntimeSQLException;
+import com.github.fjdbc.SQLConsumer;
+import com.github.fjdbc.query.ResultSetExtractor;
+
+/**
+ * A lazy stream over the rows of a query, backed by an open cursor.
+ * <p>
+ * The query is executed by the terminal operation of the stream. The connection, statement and result set are released
+ * when the last row has been read, when an exception is thrown, or when the stream is closed. Short-circuiting
+ * operations ({@code findFirst}, {@code limit}, {@code anyMatch}...) do not exhaust the cursor, so the stream must be
+ * closed, typically using a try-with-resources statement.
+ * <p>
+ * Auto-commit is disabled on the connection while the cursor is open, since some drivers (e.g PostgreSQL) ignore the
+ * fetch size and read all rows at once otherwise. It is restored when the cursor is released.
+ */
+class ResultSetStream {
+	private ResultSetStream() {
+	}
+
+	/**
+	 * @param resultSetType
+	 *        One of the {@code ResultSet.TYPE_*} constants.
+	 * @param resultSetConcurrency
+	 *        One of the {@code ResultSet.CONCUR_*} constants.
+	 * @param beforeExecution
+	 *        Called on the prepared statement before it is executed (e.g to set the fetch size). May be null.
+	 */
+	public static <T> Stream<T> open(ConnectionProvider cnxProvider, String sql, PreparedStatementBinder binder,
+			ResultSetExtractor<T> extractor, int resultSetType, int resultSetConcurrency,
+			SQLConsumer<PreparedStatement> beforeExecution) {
+		final Cursor<T> cursor = new Cursor<>(cnxProvider, sql, binder, extractor, resultSetType, resultSetConcurrency,
+				beforeExecution);
+		final Stream<T> res = StreamSupport.stream(() -> {
+			cursor.open();
+			return Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED);
+		}, Spliterator.ORDERED, false);
+		return res.onClose(cursor::close);
+	}
+
+	private static class Cursor<T> implements Iterator<T> {
+		private final ConnectionProvider cnxProvider;
+		private final String sql;
+		private final PreparedStatementBinder binder;
+		private final ResultSetExtractor<T> extractor;
+		private final int resultSetType;
+		private final int resultSetConcurrency;
+		private final SQLConsumer<PreparedStatement> beforeExecution;
+		private Connection cnx;
+		private PreparedStatement ps;
+		private ResultSet rs;
+		private Iterator<T> rows;
+		private boolean closed;
+		/**
+		 * {@code true} if auto-commit was disabled by {@link #open()}.
+		 */
+		private boolean restoreAutoCommit;
+
+		public Cursor(ConnectionProvider cnxProvider, String sql, PreparedStatementBinder binder,
+				ResultSetExtractor<T> extractor, int resultSetType, int resultSetConcurrency,
+				SQLConsumer<PreparedStatement> beforeExecution) {
+			this.cnxProvider = cnxProvider;
+			this.sql = sql;
+			this.binder = binder;
+			this.extractor = extractor;
+			this.resultSetType = resultSetType;
+			this.resultSetConcurrency = resultSetConcurrency;
+			this.beforeExecution = beforeExecution;
+		}
+
+		public synchronized void open() {
+			if (closed) throw new IllegalStateException("The stream has been closed");
+			if (rows != null) throw new IllegalStateException("The stream has already been consumed");
+			try {
+				cnx = cnxProvider.borrow();
+				if (cnx.getAutoCommit()) {
+					cnx.setAutoCommit(false);
+					restoreAutoCommit = true;
+				}
+				ps = cnx.prepareStatement(sql, resultSetType, resultSetConcurrency);
+				if (beforeExecution != null) beforeExecution.accept(ps);
+				if (binder != null) binder.bind(ps, new IntSequence(1));
+				rs = ps.executeQuery();
+				rows = extractor.iterator(rs);
+			} catch (final SQLException e) {
+				close();
+				throw new RuntimeSQLException(e);
+			} catch (final RuntimeException e) {
+				close();
+				throw e;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (closed) return false;
+			try {
+				final boolean res = rows.hasNext();
+				if (!res) close();
+				return res;
+			} catch (final RuntimeException e) {
+				close();
+				throw e;
+			}
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext()) throw new NoSuchElementException();
+			try {
+				return rows.next();
+			} catch (final RuntimeException e) {
+				close();
+				throw e;
+			}
+		}
+
+		public synchronized void close() {
+			if (closed) return;
+			closed = true;
+			try {
+				if (rs != null) rs.close();
+			} catch (final SQLException e) {
+				// ignore
+			}
+			try {
+				if (ps != null) ps.close();
+			} catch (final SQLException e) {
+				// ignore
+			}
+			try {
+				if (restoreAutoCommit) {
+					// end the transaction opened by the query
+					cnx.rollback();
+					cnx.setAutoCommit(true);
+				}
+			} catch (final SQLException e) {
+				// ignore
+			}
+			if (cnx != null) cnxProvider.giveBack(cnx);
+		}
+	}
+}
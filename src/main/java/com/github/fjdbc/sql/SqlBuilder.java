@@ -5,24 +5,48 @@ import java.net.URL;
 import java.sql.Array;
 import java.sql.Blob;
 import java.sql.Clob;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.Ref;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Time;
 import java.sql.Timestamp;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.IntUnaryOperator;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import com.github.fjdbc.ConnectionProvider;
 import com.github.fjdbc.Fjdbc;
 import com.github.fjdbc.IntSequence;
 import com.github.fjdbc.PreparedStatementBinder;
+import com.github.fjdbc.SQLConsumer;
 import com.github.fjdbc.internal.PreparedStatementEx;
 import com.github.fjdbc.op.StatementOperation;
 import com.github.fjdbc.query.Query;
@@ -124,11 +148,61 @@ import com.github.fjdbc.query.ResultSetExtractor;
  */
 public class SqlBuilder {
 	/**
-	 * Debug statements by printing the value of prepared values in a comment next to the '?' placeholder.
+	 * Debug statements by printing the value of prepared values in a comment next to the '?' placeholder (see
+	 * {@link SqlFragment#getDebugSql()}).
 	 */
 	private final boolean debug;
+	/**
+	 * Notified with the SQL and the bound values of each executed statement, or null.
+	 */
+	private volatile BiConsumer<String, List<Object>> debugListener;
 	private final Fjdbc fjdbc;
 	private final SqlDialect dialect;
+	/**
+	 * The fetch size of streams that do not specify one. {@code 0} means: use the default of the JDBC driver.
+	 */
+	private volatile int defaultFetchSize;
+	private volatile InListStrategy inListStrategy = InListStrategy.PLACEHOLDERS;
+	/**
+	 * If {@code true}, statements are rendered on a single line.
+	 */
+	private volatile boolean compact;
+	/**
+	 * The rendered SQL of statements, by shape (see {@link #render(SqlFragment, boolean)}).
+	 */
+	private final Map<ShapeKey, String> shapeCache = new ConcurrentHashMap<>();
+	private volatile int maxCachedShapes = 1024;
+	/**
+	 * The temporary tables used by the {@link InListStrategy#TEMP_TABLE} strategy.
+	 */
+	private final Set<String> inListTempTables = ConcurrentHashMap.newKeySet();
+	/**
+	 * The temporary tables already created, by connection.
+	 */
+	private final Map<Connection, Set<String>> createdInListTempTables = Collections
+			.synchronizedMap(new WeakHashMap<>());
+	/**
+	 * Identifies the rows of each {@code IN} condition in the temporary tables.
+	 */
+	private static final AtomicLong inListIds = new AtomicLong();
+	/**
+	 * Map the number of distinct values of an {@code IN} list to the number of placeholders. If null, values are not
+	 * bucketed.
+	 */
+	private volatile IntUnaryOperator inListBucketSize;
+	/**
+	 * Guards the state of asynchronous operations (see {@link #supplyAsync(Supplier, Executor)}).
+	 */
+	private final Object asyncLock = new Object();
+	/**
+	 * The maximum number of concurrent asynchronous operations, or {@code 0} for no limit.
+	 */
+	private int asyncConcurrencyLimit;
+	private int runningAsyncOperations;
+	/**
+	 * The asynchronous operations waiting for a running one to complete, in order of submission.
+	 */
+	private final Queue<Runnable> pendingAsyncOperations = new ArrayDeque<>();
 
 	/**
 	 * @param cnxProvider
@@ -142,12 +216,14 @@ public class SqlBuilder {
 	 * @param cnxProvider
 	 *        The database connection provider.
 	 * @param debug
-	 *        Debug statements by printing the value of prepared values in a comment next to the '?' placeholder.
+	 *        Debug statements by printing the value of prepared values in a comment next to the '?' placeholder. The
+	 *        values are only printed by {@link SqlFragment#getDebugSql()}: the executed SQL does not depend on them.
 	 */
 	public SqlBuilder(Fjdbc fjdbc, SqlDialect dialect, boolean debug) {
 		this.fjdbc = fjdbc;
 		this.dialect = dialect;
 		this.debug = debug;
+		this.defaultFetchSize = dialect.getDefaultFetchSize();
 	}
 
 	/**
@@ -204,6 +280,86 @@ public class SqlBuilder {
 		return new SqlInsertBuilder(tableName);
 	}
 
+	/**
+	 * Build an {@code INSERT} statement inserting the rows of several {@code INSERT ... VALUES} statements at once.
+	 * <p>
+	 * All statements must insert into the same table and the same list of columns.
+	 */
+	public MultiRowInsertBuilder insertRows(Collection<? extends SqlInsertBuilder> inserts) {
+		if (inserts.isEmpty()) throw new IllegalArgumentException("inserts must not be empty");
+		final SqlInsertBuilder first = inserts.iterator().next();
+		if (first.getValues() == null) throw new IllegalArgumentException("Statements must have a VALUES clause");
+		final List<String> columns = first.getValues().getColumnNames();
+		final List<InsertValuesBuilder> rows = new ArrayList<>(inserts.size());
+		for (final SqlInsertBuilder insert : inserts) {
+			final InsertValuesBuilder values = insert.getValues();
+			if (values == null || !insert.getTableName().equals(first.getTableName()) || !values.hasColumns(columns)) {
+				throw new IllegalArgumentException("Statements must insert into the same table and columns");
+			}
+			rows.add(values);
+		}
+		return new MultiRowInsertBuilder(first.getTableName(), rows);
+	}
+
+	/**
+	 * Compile a statement (a query, or an insert, update, delete or merge statement) into a template, which can be
+	 * executed many times with different values without building the statement again:
+	 * <pre>
+	 * final SqlTemplate byEmpno = sql.compile(sql.select("ename").from("emp").where("empno").eq().value(0L));
+	 * byEmpno.bind(7839L).toQuery(extractor).toList();
+	 * </pre>
+	 * Each {@code ?} placeholder of the statement becomes a slot of the template. The values used to build the
+	 * statement do not matter, except that the SQL must not depend on them (e.g the number of values of an {@code IN}
+	 * list).
+	 * @throws IllegalArgumentException
+	 *         If the parameters of the statement cannot be bound without a database connection (e.g {@code IN}
+	 *         conditions using the {@link InListStrategy#ARRAY} or {@link InListStrategy#TEMP_TABLE} strategies).
+	 */
+	public SqlTemplate compile(SqlFragment statement) {
+		if (statement == null) throw new IllegalArgumentException();
+		return new SqlTemplate(this, statement);
+	}
+
+	/**
+	 * Split a query into {@code partitionCount} ranges of the specified column, to be executed in parallel.
+	 * @param querySupplier
+	 *        Create the query. A new query is created for each range.
+	 * @param splitColumn
+	 *        A numeric or date column. Ideally, the column is indexed and its values are evenly distributed.
+	 */
+	public ParallelScan parallelScan(Supplier<SqlSelectBuilder> querySupplier, String splitColumn,
+			int partitionCount) {
+		return new ParallelScan(this, querySupplier, splitColumn, partitionCount);
+	}
+
+	/**
+	 * Look up a large collection of keys by splitting it into chunks of at most {@code chunkSize} keys, and executing
+	 * one query per chunk concurrently, each on its own connection. The rows of the chunks are concatenated, in the
+	 * order of the chunks, into a single stream.
+	 * <p>
+	 * If there are at most {@code chunkSize} keys, a single query is executed on the calling thread.
+	 * <p>
+	 * Each running chunk holds a connection and a thread of the executor until its rows have been consumed. The
+	 * executor must run tasks in submission order (e.g {@link java.util.concurrent.Executors#newFixedThreadPool}), and
+	 * the stream must be closed to release the connections early.
+	 * @param queryFactory
+	 *        Create the query of a chunk, typically using {@code where(column).in_*(chunk)}. All chunks should
+	 *        produce the same SQL shape (see {@link #setInListBucketing(boolean)}).
+	 */
+	public <K, T> Stream<T> chunkedLookup(Collection<? extends K> keys, int chunkSize,
+			Function<? super List<K>, SqlSelectBuilder> queryFactory, ResultSetExtractor<T> extractor,
+			Executor executor) {
+		if (chunkSize <= 0) throw new IllegalArgumentException("chunkSize must be > 0");
+		final List<K> _keys = new ArrayList<>(keys);
+		if (_keys.size() <= chunkSize) return queryFactory.apply(_keys).toStream(extractor);
+
+		final List<Supplier<Stream<T>>> sources = new ArrayList<>();
+		for (final List<K> chunk : SqlUtils.partition(_keys, chunkSize)) {
+			sources.add(() -> queryFactory.apply(chunk).toStream(extractor));
+		}
+		return ParallelQueryStream.merge(sources, executor, true, 1000);
+	}
+
 	/**
 	 * Build a {@code MERGE} statement.
 	 */
@@ -356,6 +512,32 @@ public class SqlBuilder {
 		return batchStatement(statements.stream(), -1, -1);
 	}
 
+	/**
+	 * Build a batch statement that packs consecutive {@code INSERT} statements on the same table and columns into
+	 * multi-row {@code INSERT} statements (see {@link MultiRowInsertBuilder}).
+	 * <p>
+	 * The number of rows packed in each statement is chosen to stay under the bind parameter limit of the dialect
+	 * (see {@link SqlDialect#getMaxBindParameters()}), and under {@code maxRowsPerStatement}. The flush policy of the
+	 * returned operation applies to the packed statements, not to the individual rows.
+	 */
+	public BatchStatementOperation<SqlStatement> batchInsert(Stream<? extends SqlInsertBuilder> inserts,
+			int maxRowsPerStatement) {
+		if (maxRowsPerStatement <= 0) throw new IllegalArgumentException("maxRowsPerStatement must be > 0");
+		final Iterator<SqlStatement> packed = new MultiRowInsertIterator(inserts.iterator(), maxRowsPerStatement);
+		final Stream<SqlStatement> statements = StreamSupport
+				.stream(Spliterators.spliteratorUnknownSize(packed, Spliterator.ORDERED), false)
+				.onClose(inserts::close);
+		return batchStatement(statements).groupByShape(1);
+	}
+
+	/**
+	 * Build a batch statement that packs up to 1000 consecutive {@code INSERT} statements into multi-row
+	 * {@code INSERT} statements. See {@link #batchInsert(Stream, int)}.
+	 */
+	public BatchStatementOperation<SqlStatement> batchInsert(Stream<? extends SqlInsertBuilder> inserts) {
+		return batchInsert(inserts, 1000);
+	}
+
 	public enum RelationalOperator implements SqlFragment {
 		EQ("="),
 		NOT_EQ("<>"),
@@ -380,34 +562,405 @@ public class SqlBuilder {
 		}
 	}
 
+	/**
+	 * A condition selecting the rows that come after a given row, in the order defined by a list of {@code ORDER BY}
+	 * items. Used for keyset pagination.
+	 * <p>
+	 * If the dialect supports it and all items are sorted in the same direction, a row value comparison is generated
+	 * (e.g {@code (a, b) > (?, ?)}). Otherwise, the comparison is expanded (e.g {@code (a > ? or (a = ? and b > ?))}).
+	 */
+	public class SeekCondition implements Condition {
+		private final SqlFragment wrapped;
+
+		/**
+		 * @param orderItems
+		 *        The {@code ORDER BY} items, e.g {@code "hiredate desc"}. Only the {@code asc} and {@code desc}
+		 *        modifiers are allowed.
+		 * @param lastValues
+		 *        The values of the order by items in the last row of the previous page. Null values are not
+		 *        supported.
+		 */
+		public SeekCondition(List<String> orderItems, List<?> lastValues) {
+			if (orderItems.isEmpty()) throw new IllegalArgumentException("orderItems must not be empty");
+			if (orderItems.size() != lastValues.size())
+				throw new IllegalArgumentException("orderItems and lastValues must have the same size");
+
+			final List<String> columns = new ArrayList<>();
+			final List<RelationalOperator> operators = new ArrayList<>();
+			for (final String item : orderItems) {
+				final String[] tokens = item.trim().split("\\s+");
+				final boolean desc = tokens.length == 2 && tokens[1].equalsIgnoreCase("desc");
+				if (tokens.length > 2 || tokens.length == 2 && !desc && !tokens[1].equalsIgnoreCase("asc"))
+					throw new IllegalArgumentException("Unsupported order by item: " + item);
+				columns.add(tokens[0]);
+				operators.add(desc ? RelationalOperator.LT : RelationalOperator.GT);
+			}
+
+			final boolean uniform = operators.stream().distinct().count() == 1;
+			if (columns.size() > 1 && uniform && dialect.supportsRowValueComparison()) {
+				wrapped = rowValueComparison(columns, operators.get(0), lastValues);
+			} else {
+				wrapped = expandedComparison(columns, operators, lastValues, 0);
+			}
+		}
+
+		private SqlFragment rowValueComparison(List<String> columns, RelationalOperator operator,
+				List<?> lastValues) {
+			final List<SqlFragment> fragments = new ArrayList<>();
+			fragments.add(new SqlRaw("(" + String.join(", ", columns) + ") "));
+			fragments.add(operator);
+			fragments.add(new SqlRaw(" ("));
+			forEach_endAware(lastValues, (value, first, last) -> {
+				fragments.add(parameterOf(value));
+				if (!last) fragments.add(new SqlRaw(", "));
+			});
+			fragments.add(new SqlRaw(")"));
+			return new CompositeSqlFragment(fragments.toArray(new SqlFragment[0]));
+		}
+
+		/**
+		 * {@code (a > ? or (a = ? and <comparison of the next columns>))}
+		 */
+		private SqlFragment expandedComparison(List<String> columns, List<RelationalOperator> operators,
+				List<?> lastValues, int i) {
+			final SqlRaw column = new SqlRaw(columns.get(i));
+			final Condition strict = new SimpleCondition(column, operators.get(i), parameterOf(lastValues.get(i)));
+			if (i == columns.size() - 1) return strict;
+
+			final Condition eq = new SimpleCondition(column, RelationalOperator.EQ, parameterOf(lastValues.get(i)));
+			final Condition next = (Condition) expandedComparison(columns, operators, lastValues, i + 1);
+			final CompositeConditionBuilder and = new CompositeConditionBuilder(Arrays.asList(eq, next),
+					LogicalOperator.AND);
+			return new CompositeConditionBuilder(Arrays.asList(strict, and), LogicalOperator.OR);
+		}
+
+		@Override
+		public void appendTo(SqlStringBuilder w) {
+			w.append(wrapped);
+		}
+
+		@Override
+		public void bind(PreparedStatement ps, IntSequence index) throws SQLException {
+			wrapped.bind(ps, index);
+		}
+	}
+
+	/**
+	 * The temporary table holding the values of {@code IN} conditions of the specified type, or null if the dialect or
+	 * the type does not support the {@link InListStrategy#TEMP_TABLE} strategy.
+	 */
+	private String getInListTempTable(Class<?> type) {
+		final String typeName = dialect.getArrayTypeName(type);
+		if (typeName == null) return null;
+		final String table = "fjdbc_in_" + typeName.replace(' ', '_');
+		return dialect.getCreateTempTableSql(table, "id bigint, k " + typeName) == null ? null : table;
+	}
+
+	/**
+	 * Create the temporary table if needed, and insert the values of an {@code IN} condition, identified by {@code id}.
+	 * The table is created once per connection.
+	 * @throws IllegalStateException
+	 *         If auto-commit is enabled: the rows would be deleted as soon as they are inserted, and the condition
+	 *         would silently match nothing.
+	 */
+	private void populateInListTempTable(Connection cnx, String table, long id, int count, Class<?> type,
+			InListValueBinder values) throws SQLException {
+		if (cnx.getAutoCommit()) {
+			throw new IllegalStateException("The " + InListStrategy.TEMP_TABLE + " IN list strategy requires "
+					+ "auto-commit to be disabled, since the rows of the temporary table are deleted at each commit");
+		}
+		final Set<String> created = createdInListTempTables.computeIfAbsent(cnx,
+				c -> ConcurrentHashMap.newKeySet());
+		if (!created.contains(table)) {
+			final String typeName = dialect.getArrayTypeName(type);
+			try (Statement st = cnx.createStatement()) {
+				st.execute(dialect.getCreateTempTableSql(table, "id bigint, k " + typeName));
+			}
+			inListTempTables.add(table);
+			created.add(table);
+		}
+		// in case the statement is bound several times in the same transaction
+		try (PreparedStatement ps = cnx.prepareStatement("delete from " + table + " where id = ?")) {
+			ps.setLong(1, id);
+			ps.executeUpdate();
+		}
+		try (PreparedStatement ps = cnx.prepareStatement("insert into " + table + "(id, k) values (?, ?)")) {
+			final int batchSize = 1000;
+			int pending = 0;
+			for (int i = 0; i < count; i++) {
+				ps.setLong(1, id);
+				values.bind(ps, 2, i);
+				ps.addBatch();
+				if (++pending == batchSize) {
+					ps.executeBatch();
+					pending = 0;
+				}
+			}
+			if (pending > 0) ps.executeBatch();
+		}
+	}
+
+	/**
+	 * Drop the temporary tables created on the specified connection by the {@link InListStrategy#TEMP_TABLE} strategy.
+	 * Only needed if the connection is kept open after use.
+	 */
+	public void dropInListTempTables(Connection cnx) throws SQLException {
+		createdInListTempTables.remove(cnx);
+		try (Statement st = cnx.createStatement()) {
+			for (final String table : inListTempTables) {
+				st.execute(dialect.getDropTempTableSql(table));
+			}
+		}
+	}
+
+	/**
+	 * Render {@code lhs in (?, ?, ?)}. Lists of more than 1000 values (the Oracle limit) are split into several
+	 * {@code IN} conditions joined with {@code OR}.
+	 */
+	static String inPlaceholders(String lhs, int count) {
+		final int maxItemsForInClause = 1000; // Oracle limit
+		final int groupCount = (count + maxItemsForInClause - 1) / maxItemsForInClause;
+		final StringBuilder res = new StringBuilder(groupCount * (lhs.length() + 10) + count * 3);
+		if (groupCount > 1) res.append('(');
+		for (int group = 0; group < groupCount; group++) {
+			if (group > 0) res.append(" or ");
+			res.append(lhs).append(" in (?");
+			final int groupSize = Math.min(maxItemsForInClause, count - group * maxItemsForInClause);
+			for (int i = 1; i < groupSize; i++) {
+				res.append(", ?");
+			}
+			res.append(')');
+		}
+		if (groupCount > 1) res.append(')');
+		return res.toString();
+	}
+
 	public class InConditionBuilder implements Condition {
 		private final String sql;
 		private final PreparedStatementBinder binder;
 
 		public <T> InConditionBuilder(SqlFragment lhs, Collection<? extends T> values, Class<T> type) {
 			if (values == null) throw new IllegalArgumentException();
+			// the settings of the builder may be changed concurrently: read them once
+			final InListStrategy strategy = inListStrategy;
+			final IntUnaryOperator bucketSize = inListBucketSize;
+
+			final String arrayCondition = strategy == InListStrategy.ARRAY
+					? dialect.getArrayInCondition(lhs.getSql()) : null;
+			final String arrayTypeName = dialect.getArrayTypeName(type);
 
 			if (values.isEmpty()) {
 				sql = "1=0";
 				binder = null;
+			} else if (arrayCondition != null && arrayTypeName != null) {
+				sql = arrayCondition;
+				binder = (ps, index) -> {
+					final java.sql.Array array = ps.getConnection().createArrayOf(arrayTypeName, values.toArray());
+					ps.setArray(index.next(), array);
+				};
 			} else {
-				final int maxItemsForInClause = 1000; // Oracle limit
-				final ArrayList<String> sqlClauses = new ArrayList<>(values.size() / maxItemsForInClause + 1);
-				final List<List<String>> subCollections = SqlUtils.partition(Collections.nCopies(values.size(), "?"),
-						maxItemsForInClause);
-				for (final List<String> subCollection : subCollections) {
-					sqlClauses.add(
-							lhs.getSql() + " in (" + subCollection.stream().collect(Collectors.joining(", ")) + ")");
+				final Collection<? extends T> _values = bucketSize == null ? values : toBucket(values, bucketSize);
+				final String joinCondition = joinCondition(strategy, lhs.getSql(), _values.size(), type);
+				if (_values.isEmpty()) {
+					// bucketing removed the null values, which never match
+					sql = "1=0";
+					binder = null;
+				} else if (joinCondition != null) {
+					sql = joinCondition;
+					final List<? extends T> list = new ArrayList<>(_values);
+					final JdbcBinder jdbcBinder = JdbcBinder.of(type);
+					binder = joinBinder(strategy, list.size(), type,
+							(ps, parameterIndex, i) -> setAnyObject(ps, parameterIndex, list.get(i), jdbcBinder));
+				} else {
+					sql = inPlaceholders(lhs.getSql(), _values.size());
+					final JdbcBinder jdbcBinder = JdbcBinder.of(type);
+					binder = (ps, index) -> {
+						for (final T value : _values) {
+							setAnyObject(ps, index.next(), value, jdbcBinder);
+						}
+					};
 				}
-				sql = sqlClauses.size() == 1 ? sqlClauses.get(0)
-						: ("(" + sqlClauses.stream().collect(Collectors.joining(" or ")) + ")");
+			}
+		}
+
+		/**
+		 * Same as {@link #InConditionBuilder(SqlFragment, Collection, Class)}, but the values are bound using
+		 * {@code setLong}, without boxing (except for the {@link InListStrategy#ARRAY} strategy).
+		 */
+		public InConditionBuilder(SqlFragment lhs, long[] values) {
+			if (values == null) throw new IllegalArgumentException();
+			// the settings of the builder may be changed concurrently: read them once
+			final InListStrategy strategy = inListStrategy;
+			final IntUnaryOperator bucketSize = inListBucketSize;
+
+			final String arrayCondition = strategy == InListStrategy.ARRAY
+					? dialect.getArrayInCondition(lhs.getSql()) : null;
+			final String arrayTypeName = dialect.getArrayTypeName(Long.class);
 
+			if (values.length == 0) {
+				sql = "1=0";
+				binder = null;
+			} else if (arrayCondition != null && arrayTypeName != null) {
+				sql = arrayCondition;
 				binder = (ps, index) -> {
-					for (final T value : values) {
-						setAnyObject(ps, index.next(), value, type);
-					}
+					final Long[] boxed = Arrays.stream(values).boxed().toArray(Long[]::new);
+					ps.setArray(index.next(), ps.getConnection().createArrayOf(arrayTypeName, boxed));
+				};
+			} else {
+				final long[] _values = bucketSize == null ? values : toBucket(values, bucketSize);
+				final String joinCondition = joinCondition(strategy, lhs.getSql(), _values.length, Long.class);
+				if (joinCondition != null) {
+					sql = joinCondition;
+					binder = joinBinder(strategy, _values.length, Long.class,
+							(ps, parameterIndex, i) -> ps.setLong(parameterIndex, _values[i]));
+				} else {
+					sql = inPlaceholders(lhs.getSql(), _values.length);
+					binder = (ps, index) -> {
+						for (final long value : _values) {
+							ps.setLong(index.next(), value);
+						}
+					};
+				}
+			}
+		}
+
+		/**
+		 * Same as {@link #InConditionBuilder(SqlFragment, Collection, Class)}, but the values are bound using
+		 * {@code setInt}, without boxing (except for the {@link InListStrategy#ARRAY} strategy).
+		 */
+		public InConditionBuilder(SqlFragment lhs, int[] values) {
+			if (values == null) throw new IllegalArgumentException();
+			// the settings of the builder may be changed concurrently: read them once
+			final InListStrategy strategy = inListStrategy;
+			final IntUnaryOperator bucketSize = inListBucketSize;
+
+			final String arrayCondition = strategy == InListStrategy.ARRAY
+					? dialect.getArrayInCondition(lhs.getSql()) : null;
+			final String arrayTypeName = dialect.getArrayTypeName(Integer.class);
+
+			if (values.length == 0) {
+				sql = "1=0";
+				binder = null;
+			} else if (arrayCondition != null && arrayTypeName != null) {
+				sql = arrayCondition;
+				binder = (ps, index) -> {
+					final Integer[] boxed = Arrays.stream(values).boxed().toArray(Integer[]::new);
+					ps.setArray(index.next(), ps.getConnection().createArrayOf(arrayTypeName, boxed));
+				};
+			} else {
+				final int[] _values = bucketSize == null ? values : toBucket(values, bucketSize);
+				final String joinCondition = joinCondition(strategy, lhs.getSql(), _values.length, Integer.class);
+				if (joinCondition != null) {
+					sql = joinCondition;
+					binder = joinBinder(strategy, _values.length, Integer.class,
+							(ps, parameterIndex, i) -> ps.setInt(parameterIndex, _values[i]));
+				} else {
+					sql = inPlaceholders(lhs.getSql(), _values.length);
+					binder = (ps, index) -> {
+						for (final int value : _values) {
+							ps.setInt(index.next(), value);
+						}
+					};
+				}
+			}
+		}
+
+		/**
+		 * The condition of the {@link InListStrategy#TEMP_TABLE} or {@link InListStrategy#VALUES} strategies, or null
+		 * if they do not apply.
+		 * @throws IllegalArgumentException
+		 *         If the {@code VALUES} condition would have more placeholders than allowed by the dialect.
+		 */
+		private String joinCondition(InListStrategy strategy, String lhs, int count, Class<?> type) {
+			if (strategy == InListStrategy.TEMP_TABLE) {
+				final String table = getInListTempTable(type);
+				if (table != null) return lhs + " in (select k from " + table + " where id = ?)";
+			}
+			if (strategy == InListStrategy.TEMP_TABLE || strategy == InListStrategy.VALUES) {
+				final String res = dialect.getValuesInCondition(lhs, count);
+				// one placeholder per value: fail now rather than when the driver executes the statement
+				if (res != null && count > dialect.getMaxBindParameters()) {
+					throw new IllegalArgumentException(String.format("%d values exceed the bind parameter limit of the "
+							+ "%s dialect (%d) with the %s IN list strategy", count, dialect,
+							dialect.getMaxBindParameters(), InListStrategy.VALUES));
+				}
+				return res;
+			}
+			return null;
+		}
+
+		private PreparedStatementBinder joinBinder(InListStrategy strategy, int count, Class<?> type,
+				InListValueBinder values) {
+			final String table = strategy == InListStrategy.TEMP_TABLE ? getInListTempTable(type) : null;
+			if (table != null) {
+				final long id = inListIds.incrementAndGet();
+				return (ps, index) -> {
+					populateInListTempTable(ps.getConnection(), table, id, count, type, values);
+					ps.setLong(index.next(), id);
 				};
 			}
+			return (ps, index) -> {
+				for (int i = 0; i < count; i++) {
+					values.bind(ps, index.next(), i);
+				}
+			};
+		}
+
+		/**
+		 * Remove null and duplicate values, sort the values if they are comparable and of the same class, then pad them
+		 * with the last value up to the bucket size.
+		 * @return An empty list if all values are null.
+		 */
+		private <T> List<T> toBucket(Collection<? extends T> values, IntUnaryOperator bucketSizes) {
+			Class<?> valueClass = null;
+			boolean sortable = true;
+			for (final T value : values) {
+				if (value == null) continue;
+				if (valueClass == null) valueClass = value.getClass();
+				// values of different classes are not mutually comparable, e.g Integer and Long
+				if (value.getClass() != valueClass || !(value instanceof Comparable)) {
+					sortable = false;
+					break;
+				}
+			}
+			final Collection<T> distinct = sortable ? new TreeSet<>() : new LinkedHashSet<>();
+			for (final T value : values) {
+				// 'col in (null)' never matches
+				if (value != null) distinct.add(value);
+			}
+			if (distinct.isEmpty()) return Collections.emptyList();
+
+			final List<T> res = new ArrayList<>(distinct);
+			final int bucketSize = bucketSizes.applyAsInt(res.size());
+			final T last = res.get(res.size() - 1);
+			while (res.size() < bucketSize) {
+				res.add(last);
+			}
+			return res;
+		}
+
+		private long[] toBucket(long[] values, IntUnaryOperator bucketSizes) {
+			final long[] sorted = values.clone();
+			Arrays.sort(sorted);
+			int distinctCount = 1;
+			for (int i = 1; i < sorted.length; i++) {
+				if (sorted[i] != sorted[distinctCount - 1]) sorted[distinctCount++] = sorted[i];
+			}
+			final long[] res = Arrays.copyOf(sorted, bucketSizes.applyAsInt(distinctCount));
+			Arrays.fill(res, distinctCount, res.length, sorted[distinctCount - 1]);
+			return res;
+		}
+
+		private int[] toBucket(int[] values, IntUnaryOperator bucketSizes) {
+			final int[] sorted = values.clone();
+			Arrays.sort(sorted);
+			int distinctCount = 1;
+			for (int i = 1; i < sorted.length; i++) {
+				if (sorted[i] != sorted[distinctCount - 1]) sorted[distinctCount++] = sorted[i];
+			}
+			final int[] res = Arrays.copyOf(sorted, bucketSizes.applyAsInt(distinctCount));
+			Arrays.fill(res, distinctCount, res.length, sorted[distinctCount - 1]);
+			return res;
 		}
 
 		@Override
@@ -461,13 +1014,171 @@ public class SqlBuilder {
 	}
 
 	public static class SqlStringBuilder {
-		private final StringBuilder sb = new StringBuilder();
+		private static final int INDENT_WIDTH = 4;
+		private static final String[] indents = new String[16];
+		/**
+		 * Buffers larger than this are not kept for reuse, so that rendering a huge statement does not retain memory.
+		 */
+		private static final int MAX_REUSABLE_CAPACITY = 1 << 16;
+		private static final int DEFAULT_CAPACITY = 1024;
+		/**
+		 * One reusable buffer per thread. The slot is emptied while the buffer is in use, so that nested renderings
+		 * allocate their own buffer.
+		 */
+		private static final ThreadLocal<StringBuilder[]> reusableBuffer = ThreadLocal
+				.withInitial(() -> new StringBuilder[] { new StringBuilder(DEFAULT_CAPACITY) });
+		/**
+		 * Hashing mode: arrays of parts larger than this are not kept for reuse.
+		 */
+		private static final int MAX_REUSABLE_PARTS = 1 << 12;
+		private static final int DEFAULT_PARTS = 256;
+		/**
+		 * Hashing mode: one reusable array of parts per thread (see {@link #reusableBuffer}).
+		 */
+		private static final ThreadLocal<Object[][]> reusableParts = ThreadLocal
+				.withInitial(() -> new Object[][] { new Object[DEFAULT_PARTS] });
+
+		static {
+			for (int i = 0; i < indents.length; i++) {
+				indents[i] = spaces(i * INDENT_WIDTH);
+			}
+		}
+
+		private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+		private static final long FNV_PRIME = 0x100000001b3L;
+		/**
+		 * Recorded instead of the whitespace whose rendering depends on the indentation level.
+		 */
+		private static final Object NEWLINE_TOKEN = new Object();
+		private static final Object INDENT_TOKEN = new Object();
+		private static final Object DEDENT_TOKEN = new Object();
+
+		private final StringBuilder sb;
+		/**
+		 * If {@code true}, the SQL is not rendered but only hashed (see {@link #hashing(boolean)}).
+		 */
+		private final boolean hashing;
+		private long hash = FNV_OFFSET_BASIS;
+		/**
+		 * Hashing mode: the strings appended so far, and the whitespace tokens.
+		 */
+		private Object[] parts;
+		private int partCount;
 		private int indentLevel = 0;
 		private boolean startLine = true;
+		/**
+		 * If {@code true}, the values of parameters are printed in debug mode (see {@link SqlFragment#getDebugSql()}).
+		 * Otherwise, the output only depends on the structure of the statement.
+		 */
+		private final boolean printValues;
+		/**
+		 * If {@code true}, the SQL is generated on a single line, with single spaces and no indentation.
+		 */
+		private final boolean compact;
+		private final boolean reusable;
+		/**
+		 * Compact mode: {@code true} if whitespace has been skipped since the last character.
+		 */
+		private boolean pendingSpace;
+		/**
+		 * Compact mode: the quote character of the literal (or {@code '*'} for a block comment, {@code '-'} for a line
+		 * comment) being appended, or {@code 0}. Whitespace within literals and comments is preserved.
+		 */
+		private char quote;
+
+		public SqlStringBuilder() {
+			this(false);
+		}
+
+		public SqlStringBuilder(boolean printValues) {
+			this(printValues, false);
+		}
+
+		public SqlStringBuilder(boolean printValues, boolean compact) {
+			this(printValues, compact, new StringBuilder(256), false);
+		}
+
+		private SqlStringBuilder(boolean printValues, boolean compact, StringBuilder sb, boolean reusable) {
+			this.printValues = printValues;
+			this.compact = compact;
+			this.sb = sb;
+			this.reusable = reusable;
+			this.hashing = sb == null;
+		}
+
+		/**
+		 * Return a builder which does not render the SQL, but computes a key identifying it (see
+		 * {@link #getShapeKey()}). The values of parameters are not printed, and no buffer is allocated: the appended
+		 * strings are only recorded. {@link #release()} must be called once the key is no longer used.
+		 * @param compact
+		 *        The rendering mode of the SQL identified by the key.
+		 */
+		static SqlStringBuilder hashing(boolean compact) {
+			final SqlStringBuilder res = new SqlStringBuilder(false, compact, null, false);
+			final Object[][] slot = reusableParts.get();
+			res.parts = slot[0] == null ? new Object[DEFAULT_PARTS] : slot[0];
+			slot[0] = null;
+			return res;
+		}
+		/**
+		 * Return a builder using the reusable buffer of the current thread (or a new buffer if it is already in use).
+		 * {@link #release()} must be called once the SQL has been read.
+		 */
+		static SqlStringBuilder acquire(boolean printValues, boolean compact) {
+			final StringBuilder[] slot = reusableBuffer.get();
+			final StringBuilder buffer = slot[0];
+			if (buffer == null) return new SqlStringBuilder(printValues, compact);
+			slot[0] = null;
+			buffer.setLength(0);
+			return new SqlStringBuilder(printValues, compact, buffer, true);
+		}
+
+		/**
+		 * Give the buffer back to the current thread. The builder must not be used afterwards.
+		 * <p>
+		 * A buffer that has grown too large is replaced by a new one, so that the following renderings still reuse a
+		 * buffer.
+		 */
+		void release() {
+			if (hashing) {
+				Arrays.fill(parts, 0, partCount, null);
+				reusableParts.get()[0] = parts.length <= MAX_REUSABLE_PARTS ? parts : new Object[DEFAULT_PARTS];
+				return;
+			}
+			if (!reusable) return;
+			reusableBuffer.get()[0] = sb.capacity() <= MAX_REUSABLE_CAPACITY ? sb : new StringBuilder(DEFAULT_CAPACITY);
+		}
+
+		private static String spaces(int count) {
+			final char[] res = new char[count];
+			Arrays.fill(res, ' ');
+			return new String(res);
+		}
+
+		private static String indent(int level) {
+			return level < indents.length ? indents[level] : spaces(level * INDENT_WIDTH);
+		}
+
+		public boolean isPrintValues() {
+			return printValues;
+		}
+
+		public boolean isCompact() {
+			return compact;
+		}
 
 		public SqlStringBuilder append(String sql) {
-			if (startLine)
-				sb.append(Collections.nCopies(indentLevel * 4, " ").stream().collect(Collectors.joining()));
+			if (hashing) {
+				// the hash code of constant strings is computed once
+				hash(sql.hashCode());
+				addPart(sql);
+				return this;
+			}
+			if (compact) {
+				appendCompact(sql);
+				return this;
+			}
+			if (startLine && indentLevel > 0) sb.append(indent(indentLevel));
 			startLine = false;
 			sb.append(sql);
 			return this;
@@ -500,27 +1211,177 @@ public class SqlBuilder {
 		}
 
 		public SqlStringBuilder appendln() {
+			if (hashing) {
+				hash(1);
+				addPart(NEWLINE_TOKEN);
+				return this;
+			}
+			if (compact) {
+				if (quote == '-') endLineComment();
+				pendingSpace = true;
+				return this;
+			}
 			sb.append("\n");
 			startLine = true;
 
 			return this;
 		}
 
+		/**
+		 * Append the SQL, replacing each run of whitespace (outside of literals and comments) with a single space. No
+		 * space is output after an opening parenthesis, before a closing parenthesis, or at the start of the SQL.
+		 * <p>
+		 * Line comments are converted to block comments, since the newline ending them is not output.
+		 */
+		private void appendCompact(String sql) {
+			for (int i = 0; i < sql.length(); i++) {
+				final char c = sql.charAt(i);
+				final int length = sb.length();
+				final char previous = length == 0 ? 0 : sb.charAt(length - 1);
+				if (quote == '*') {
+					sb.append(c);
+					if (c == '/' && previous == '*') quote = 0;
+				} else if (quote == '-') {
+					if (c == '\n' || c == '\r') {
+						endLineComment();
+					} else {
+						// do not end the block comment early
+						if (c == '/' && previous == '*') sb.append(' ');
+						sb.append(c);
+					}
+				} else if (quote != 0) {
+					sb.append(c);
+					if (c == quote) quote = 0;
+				} else if (Character.isWhitespace(c)) {
+					pendingSpace = true;
+				} else if (c == '-' && previous == '-' && !pendingSpace) {
+					sb.setLength(length - 1);
+					sb.append("/*");
+					quote = '-';
+				} else {
+					if (pendingSpace && length > 0 && previous != '(' && c != ')') sb.append(' ');
+					pendingSpace = false;
+					if (c == '\'' || c == '"') {
+						quote = c;
+					} else if (c == '*' && previous == '/') {
+						quote = '*';
+					}
+					sb.append(c);
+				}
+			}
+		}
+
+		private void endLineComment() {
+			int length = sb.length();
+			while (Character.isWhitespace(sb.charAt(length - 1))) {
+				length--;
+			}
+			sb.setLength(length);
+			sb.append(" */");
+			quote = 0;
+			pendingSpace = true;
+		}
+
+		private void hash(int c) {
+			hash = (hash ^ c) * FNV_PRIME;
+		}
+
+		private void addPart(Object part) {
+			if (partCount == parts.length) parts = Arrays.copyOf(parts, partCount * 2);
+			parts[partCount++] = part;
+		}
+
 		public void increaseIndent() {
+			if (hashing) {
+				hash(2);
+				addPart(INDENT_TOKEN);
+			}
 			indentLevel++;
 		}
 
 		public void decreaseIndent() {
+			if (hashing) {
+				hash(3);
+				addPart(DEDENT_TOKEN);
+			}
 			indentLevel--;
 		}
 
 		public String getSql() {
-			return sb.toString();
+			return getSqlChars().toString();
+		}
+
+		/**
+		 * Hashing mode: return the key of the SQL appended to this builder. Two fragments having equal keys have the
+		 * same SQL. The key is only valid until this builder is released (see {@link ShapeKey#copy()}).
+		 */
+		ShapeKey getShapeKey() {
+			if (!hashing) throw new IllegalStateException("Not in hashing mode");
+			return new ShapeKey(hash, parts, partCount, compact);
+		}
+
+		/**
+		 * Same as {@link #getSql()}, without copying the SQL into a new string. The returned sequence reflects
+		 * subsequent modifications of this builder, and must not be used once the builder is released. Useful to hash,
+		 * log or write the SQL; executing it still requires a string, since JDBC does not accept a
+		 * {@code CharSequence}.
+		 */
+		public CharSequence getSqlChars() {
+			if (hashing) throw new IllegalStateException("The SQL is not rendered in hashing mode");
+			if (quote == '-') endLineComment();
+			return sb;
 		}
 
 		@Override
 		public String toString() {
-			return sb.toString();
+			return hashing ? "" : sb.toString();
+		}
+	}
+
+	/**
+	 * Identifies the SQL of a fragment without rendering it (see {@link SqlStringBuilder#hashing(boolean)}): the
+	 * sequence of strings and whitespace tokens appended by the fragment.
+	 * <p>
+	 * Keys are compared part by part, so that a hash collision never returns the SQL of another fragment. Fragments
+	 * built by the same code append the same string instances, which are compared by reference.
+	 */
+	static final class ShapeKey {
+		private final long hash;
+		private final Object[] parts;
+		private final int partCount;
+		private final boolean compact;
+
+		ShapeKey(long hash, Object[] parts, int partCount, boolean compact) {
+			this.hash = hash;
+			this.parts = parts;
+			this.partCount = partCount;
+			this.compact = compact;
+		}
+
+		/**
+		 * Return a key that does not share the parts of the hashing builder, to be stored in a cache.
+		 */
+		ShapeKey copy() {
+			return new ShapeKey(hash, Arrays.copyOf(parts, partCount), partCount, compact);
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(hash) * 31 + partCount;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof ShapeKey)) return false;
+			final ShapeKey other = (ShapeKey) obj;
+			if (hash != other.hash || partCount != other.partCount || compact != other.compact) return false;
+			for (int i = 0; i < partCount; i++) {
+				final Object part = parts[i];
+				final Object otherPart = other.parts[i];
+				if (part != otherPart && !part.equals(otherPart)) return false;
+			}
+			return true;
 		}
 	}
 
@@ -531,8 +1392,11 @@ public class SqlBuilder {
 	 */
 	public class SqlParameter<T> implements SqlFragment {
 		private final T value;
-		private final Class<T> type;
 		private final String sql;
+		/**
+		 * Resolved once, since parameters may be bound many times (e.g in batch statements).
+		 */
+		private final JdbcBinder binder;
 
 		public SqlParameter(T value, Class<T> type) {
 			this("?", value, type);
@@ -542,13 +1406,13 @@ public class SqlBuilder {
 			this.sql = rawSql;
 			assert rawSql != null && rawSql.contains("?");
 			this.value = value;
-			this.type = type;
+			this.binder = JdbcBinder.of(type);
 		}
 
 		@Override
 		public void appendTo(SqlStringBuilder w) {
 			w.append(sql);
-			if (isDebug()) {
+			if (isDebug() && w.isPrintValues()) {
 				w.append("  /* ");
 				w.append(value == null ? "null" : SqlUtils.escapeComment(value.toString()));
 				w.append(" */");
@@ -557,7 +1421,7 @@ public class SqlBuilder {
 
 		@Override
 		public void bind(PreparedStatement st, IntSequence index) throws SQLException {
-			setAnyObject(st, index.next(), value, type);
+			setAnyObject(st, index.next(), value, binder);
 		}
 
 		@Override
@@ -705,7 +1569,29 @@ public class SqlBuilder {
 		}
 	}
 
+	/**
+	 * Create a parameter for a value whose JDBC type is only known at runtime.
+	 */
+	@SuppressWarnings("unchecked")
+	<T> SqlParameter<T> parameterOf(T value) {
+		if (value == null) throw new IllegalArgumentException("Null values are not supported");
+		for (final Class<?> type : PreparedStatementEx.jdbcTypes) {
+			if (type.isInstance(value)) return new SqlParameter<>(value, (Class<T>) type);
+		}
+		throw new IllegalArgumentException(String.format("Invalid JDBC type: %s. Allowed types are: %s",
+				value.getClass(), PreparedStatementEx.jdbcTypes));
+	}
+
 	<T> void setAnyObject(PreparedStatement ps, int columnIndex, T o, Class<T> type) throws SQLException {
+		setAnyObject(ps, columnIndex, o, JdbcBinder.of(type));
+	}
+
+	/**
+	 * @param binder
+	 *        The binder of the type of the value, resolved with {@link JdbcBinder#of(Class)}. If null, non-null values
+	 *        are ignored.
+	 */
+	void setAnyObject(PreparedStatement ps, int columnIndex, Object o, JdbcBinder binder) throws SQLException {
 		if (o == null) {
 			// java.sql.Types.OTHER does not work with Oracle driver.
 			if (dialect == SqlDialect.ORACLE) {
@@ -713,39 +1599,8 @@ public class SqlBuilder {
 			} else {
 				ps.setNull(columnIndex, java.sql.Types.OTHER);
 			}
-
-		} else if (type.equals(String.class)) {
-			ps.setString(columnIndex, (String) o);
-		} else if (type.equals(BigDecimal.class)) {
-			ps.setBigDecimal(columnIndex, (BigDecimal) o);
-		} else if (type.equals(Boolean.class)) {
-			ps.setBoolean(columnIndex, (Boolean) o);
-		} else if (type.equals(Integer.class)) {
-			ps.setInt(columnIndex, (Integer) o);
-		} else if (type.equals(Long.class)) {
-			ps.setLong(columnIndex, (Long) o);
-		} else if (type.equals(Float.class)) {
-			ps.setFloat(columnIndex, (Float) o);
-		} else if (type.equals(Double.class)) {
-			ps.setDouble(columnIndex, (Double) o);
-		} else if (type.equals(byte[].class)) {
-			ps.setBytes(columnIndex, (byte[]) o);
-		} else if (type.equals(java.sql.Date.class)) {
-			ps.setDate(columnIndex, (java.sql.Date) o);
-		} else if (type.equals(Time.class)) {
-			ps.setTime(columnIndex, (Time) o);
-		} else if (type.equals(Timestamp.class)) {
-			ps.setTimestamp(columnIndex, (Timestamp) o);
-		} else if (type.equals(Clob.class)) {
-			ps.setClob(columnIndex, (Clob) o);
-		} else if (type.equals(Blob.class)) {
-			ps.setBlob(columnIndex, (Blob) o);
-		} else if (type.equals(Array.class)) {
-			ps.setArray(columnIndex, (Array) o);
-		} else if (type.equals(Ref.class)) {
-			ps.setRef(columnIndex, (Ref) o);
-		} else if (type.equals(URL.class)) {
-			ps.setURL(columnIndex, (URL) o);
+		} else if (binder != null) {
+			binder.set(ps, columnIndex, o);
 		}
 	}
 
@@ -758,9 +1613,36 @@ public class SqlBuilder {
 		}
 
 		default String getSql() {
-			final SqlStringBuilder builder = new SqlStringBuilder();
-			appendTo(builder);
-			return builder.getSql();
+			final SqlStringBuilder builder = SqlStringBuilder.acquire(false, false);
+			try {
+				appendTo(builder);
+				return builder.getSql();
+			} finally {
+				builder.release();
+			}
+		}
+
+		/**
+		 * Return the SQL of this fragment, with the values of parameters printed in a comment next to each placeholder
+		 * in debug mode (see {@link SqlBuilder#isDebug()}). For logging only: this SQL is never executed, so that the
+		 * executed SQL (and hence the statement and plan caches) do not depend on the values.
+		 */
+		default String getDebugSql() {
+			final SqlStringBuilder builder = SqlStringBuilder.acquire(true, false);
+			try {
+				appendTo(builder);
+				return builder.getSql();
+			} finally {
+				builder.release();
+			}
+		}
+
+		/**
+		 * Return the shape of this fragment, i.e its SQL, which does not depend on the values of parameters. Statements
+		 * having the same shape can be executed with the same {@code PreparedStatement}.
+		 */
+		default String getShape() {
+			return getSql();
 		}
 
 		public static final SqlFragment indent = w -> {
@@ -1039,6 +1921,34 @@ public class SqlBuilder {
 		public P in_URL(Collection<? extends URL> values) { _in(values, URL.class); return parent; }
 		// @formatter:on
 
+		/**
+		 * Build an {@code IN} condition. The values are bound using {@code setInt}, without boxing (except for the
+		 * {@link InListStrategy#ARRAY} strategy, since JDBC arrays are arrays of objects). The array is not copied, so
+		 * it must not be modified until the statement is executed.
+		 */
+		public P in(int[] values) {
+			currentCondition = new InConditionBuilder(lhs, values);
+			return parent;
+		}
+
+		/**
+		 * Build an {@code IN} condition. The values are bound using {@code setLong}, without boxing (except for the
+		 * {@link InListStrategy#ARRAY} strategy, since JDBC arrays are arrays of objects). The array is not copied, so
+		 * it must not be modified until the statement is executed.
+		 */
+		public P in(long[] values) {
+			currentCondition = new InConditionBuilder(lhs, values);
+			return parent;
+		}
+
+		/**
+		 * Build an {@code IN} condition. The values are bound using {@code setLong}, without boxing (except for the
+		 * {@link InListStrategy#ARRAY} strategy).
+		 */
+		public P in(LongStream values) {
+			return in(values.toArray());
+		}
+
 		public P in(SqlSelectBuilder subquery) {
 			currentCondition = new InSubqueryConditionBuilder(lhs, subquery);
 			return parent;
@@ -1100,7 +2010,44 @@ public class SqlBuilder {
 
 	public abstract class SqlStatement implements SqlFragment {
 		public StatementOperation toStatement() {
-			return fjdbc.statement(getSql(), this);
+			final String sql = getSql();
+			return fjdbc.statement(sql, withDebugListener(sql, this));
+		}
+
+		/**
+		 * Return the SQL of this statement, in the rendering mode of the {@link SqlBuilder} (see
+		 * {@link SqlBuilder#setCompact(boolean)}).
+		 */
+		@Override
+		public String getSql() {
+			return render(this, false);
+		}
+
+		@Override
+		public String getDebugSql() {
+			return render(this, true);
+		}
+
+		/**
+		 * Return the SQL of this statement, pretty-printed regardless of the rendering mode (e.g for logging).
+		 */
+		public String getPrettySql() {
+			return SqlFragment.super.getSql();
+		}
+
+		/**
+		 * Execute and commit this statement on a thread of the specified executor.
+		 * <p>
+		 * The SQL is generated, and the values are recorded, on the calling thread, so the statement may be modified
+		 * once this method returns; except if it has {@code IN} conditions using the {@link InListStrategy#ARRAY} or
+		 * {@link InListStrategy#TEMP_TABLE} strategies, whose values can only be bound on the executor thread. See
+		 * {@link SqlBuilder#setAsyncConcurrencyLimit(int)}.
+		 * @return A future completed with the number of modified rows.
+		 */
+		public CompletableFuture<Integer> executeAsync(Executor executor) {
+			final String sql = getSql();
+			final StatementOperation statement = fjdbc.statement(sql, withDebugListener(sql, snapshot(this)));
+			return supplyAsync(statement::executeAndCommit, executor);
 		}
 	}
 
@@ -1159,34 +2106,128 @@ public class SqlBuilder {
 		private SqlSelectBuilder subquery;
 		private final SqlSelectBuilder parent;
 
-		public WithClauseBuilder(String pseudoTableName, SqlSelectBuilder parent) {
-			this.pseudoTableName = pseudoTableName;
-			this.parent = parent;
+		public WithClauseBuilder(String pseudoTableName, SqlSelectBuilder parent) {
+			this.pseudoTableName = pseudoTableName;
+			this.parent = parent;
+		}
+
+		public SqlSelectBuilder as(SqlSelectBuilder _subquery) {
+			this.subquery = _subquery;
+			return parent;
+		}
+
+		@Override
+		public void bind(PreparedStatement ps, IntSequence index) throws SQLException {
+			subquery.bind(ps, index);
+		}
+
+		@Override
+		public void appendTo(SqlStringBuilder w) {
+			w.append(pseudoTableName).appendln(" as (");
+			w.increaseIndent();
+			w.append(subquery);
+			w.decreaseIndent();
+			w.append(")");
+		}
+	}
+
+	public abstract class SqlSelectStatement implements SqlFragment {
+		final QueryHints hints = new QueryHints();
+
+		/**
+		 * Return the SQL of this statement, in the rendering mode of the {@link SqlBuilder} (see
+		 * {@link SqlBuilder#setCompact(boolean)}).
+		 */
+		@Override
+		public String getSql() {
+			return render(this, false);
+		}
+
+		@Override
+		public String getDebugSql() {
+			return render(this, true);
+		}
+
+		/**
+		 * Return the SQL of this statement, pretty-printed regardless of the rendering mode (e.g for logging).
+		 */
+		public String getPrettySql() {
+			return SqlFragment.super.getSql();
+		}
+
+		/**
+		 * Create a query. The fetch size, max rows and query timeout hints, if set, are applied to the statement before
+		 * execution; the default fetch size of the {@link SqlBuilder} is not. The result set type and concurrency hints
+		 * are only honored by {@link #toStream}.
+		 * <p>
+		 * If hints are set, the returned query already has a {@code doBeforeExecution} consumer, which
+		 * {@link Query#doBeforeExecution} would replace: use {@link SqlSelectBuilder#doBeforeExecution} instead.
+		 */
+		public <T> Query<T> toQuery(ResultSetExtractor<T> extractor) {
+			return toQuery(extractor, false);
+		}
+
+		/**
+		 * @param snapshot
+		 *        If {@code true}, the values are recorded right away (see {@link SqlBuilder#snapshot}).
+		 */
+		private <T> Query<T> toQuery(ResultSetExtractor<T> extractor, boolean snapshot) {
+			final String sql = getSql();
+			final Query<T> res = fjdbc.query(sql, withDebugListener(sql, snapshot ? snapshot(this) : this), extractor);
+			if (hints.hasStatementOptions(0)) {
+				final QueryHints _hints = hints.copy();
+				res.doBeforeExecution(st -> _hints.apply(st, 0));
+			}
+			return res;
 		}
 
-		public SqlSelectBuilder as(SqlSelectBuilder _subquery) {
-			this.subquery = _subquery;
-			return parent;
+		/**
+		 * Execute this query on a thread of the specified executor.
+		 * <p>
+		 * The SQL is generated, and the values are recorded, on the calling thread, so the query may be modified once
+		 * this method returns; except if it has {@code IN} conditions using the {@link InListStrategy#ARRAY} or
+		 * {@link InListStrategy#TEMP_TABLE} strategies, whose values can only be bound on the executor thread. See
+		 * {@link SqlBuilder#setAsyncConcurrencyLimit(int)}.
+		 * @return A future completed with the rows returned by the query.
+		 */
+		public <T> CompletableFuture<List<T>> toListAsync(ResultSetExtractor<T> extractor, Executor executor) {
+			final Query<T> query = toQuery(extractor, true);
+			return supplyAsync(query::toList, executor);
 		}
 
-		@Override
-		public void bind(PreparedStatement ps, IntSequence index) throws SQLException {
-			subquery.bind(ps, index);
+		/**
+		 * Execute this query and return a lazy stream over its rows, using the fetch size hint of this query (or the
+		 * default fetch size of the {@link SqlBuilder}, see {@link SqlBuilder#setDefaultFetchSize(int)}).
+		 * @see #toStream(ResultSetExtractor, int)
+		 */
+		public <T> Stream<T> toStream(ResultSetExtractor<T> extractor) {
+			return openStream(extractor, hints.getFetchSize(defaultFetchSize));
 		}
 
-		@Override
-		public void appendTo(SqlStringBuilder w) {
-			w.append(pseudoTableName).appendln(" as (");
-			w.increaseIndent();
-			w.append(subquery);
-			w.decreaseIndent();
-			w.append(")");
+		/**
+		 * Execute this query and return a lazy stream over its rows, read from a cursor (forward-only and read-only
+		 * unless specified otherwise with the result set hints).
+		 * <p>
+		 * The query is executed by the terminal operation of the stream. The connection is released when all rows have
+		 * been read, or when the stream is closed. Short-circuiting operations ({@code findFirst}, {@code limit}...)
+		 * leave the cursor open, so the stream should be used in a try-with-resources statement.
+		 * <p>
+		 * Auto-commit is disabled on the connection while the cursor is open, since some drivers (e.g PostgreSQL) only
+		 * honor the fetch size when auto-commit is disabled. It is restored when the connection is released.
+		 * @param fetchSize
+		 *        The number of rows fetched per round trip, or {@code 0} to use the default of the JDBC driver.
+		 */
+		public <T> Stream<T> toStream(ResultSetExtractor<T> extractor, int fetchSize) {
+			if (fetchSize < 0) throw new IllegalArgumentException("fetchSize must be >= 0");
+			return openStream(extractor, fetchSize);
 		}
-	}
 
-	public abstract class SqlSelectStatement implements SqlFragment {
-		public <T> Query<T> toQuery(ResultSetExtractor<T> extractor) {
-			return fjdbc.query(getSql(), this, extractor);
+		private <T> Stream<T> openStream(ResultSetExtractor<T> extractor, int fetchSize) {
+			final QueryHints _hints = hints.copy();
+			_hints.fetchSize = fetchSize;
+			final String sql = getSql();
+			return ResultSetStream.open(getConnectionProvider(), sql, withDebugListener(sql, this), extractor,
+					_hints.resultSetType, _hints.resultSetConcurrency, ps -> _hints.apply(ps, 0));
 		}
 	}
 
@@ -1321,6 +2362,16 @@ public class SqlBuilder {
 			return this;
 		}
 
+		/**
+		 * Select from a subquery having the specified alias. Some databases (e.g PostgreSQL) require an alias.
+		 */
+		public SqlSelectBuilder from(SqlSelectBuilder _fromClause, String alias) {
+			if (fromClause != null) throw new IllegalStateException("from clause has already been set");
+			this.fromClause = new CompositeSqlFragment(SqlFragment.wrapInParentheses(_fromClause, true),
+					new SqlRaw(" " + alias));
+			return this;
+		}
+
 		private SqlSelectBuilder join(JoinType joinType, String joinClause) {
 			if (joinClause == null) throw new IllegalArgumentException();
 			joinClauses.add(joinType.getSql() + " " + joinClause);
@@ -1389,6 +2440,29 @@ public class SqlBuilder {
 			return this;
 		}
 
+		/**
+		 * Keyset pagination: sort the rows by the specified items, and only return the rows that come after
+		 * {@code lastValues}. Unlike {@link #offset(int)}, the database can seek directly to the first row of the page
+		 * using an index on the order by items.
+		 * <p>
+		 * The order by items must identify a row uniquely (e.g by ending with the primary key), otherwise rows may be
+		 * skipped.
+		 * @param orderItems
+		 *        The {@code ORDER BY} items, e.g {@code "hiredate desc"}. Only the {@code asc} and {@code desc}
+		 *        modifiers are allowed.
+		 * @param lastValues
+		 *        The values of the order by items in the last row of the previous page, or {@code null} for the first
+		 *        page.
+		 * @see KeysetPageIterator
+		 */
+		public SqlSelectBuilder seekAfter(List<String> orderItems, List<?> lastValues) {
+			if (!orderByClauses.isEmpty()) throw new IllegalStateException("order by clause has already been set");
+			final SeekCondition condition = lastValues == null ? null : new SeekCondition(orderItems, lastValues);
+			orderBy(orderItems.toArray(new String[0]));
+			if (condition != null) where(condition);
+			return this;
+		}
+
 		/**
 		 * Row offset. {@code 0} means no offset.<br>
 		 * Introduced in the SQL:2008 standard.
@@ -1405,6 +2479,67 @@ public class SqlBuilder {
 			return this;
 		}
 
+		/**
+		 * The number of rows fetched per round trip. Overrides the default fetch size of the {@link SqlBuilder} for
+		 * streams.
+		 * @param _fetchSize
+		 *        The fetch size, or {@code 0} to use the default of the JDBC driver.
+		 */
+		public SqlSelectBuilder fetchSize(int _fetchSize) {
+			if (_fetchSize < 0) throw new IllegalArgumentException("fetchSize must be >= 0");
+			hints.fetchSize = _fetchSize;
+			return this;
+		}
+
+		/**
+		 * Limit the number of rows returned by the JDBC driver ({@link java.sql.Statement#setMaxRows}). Unlike
+		 * {@link #fetchFirst(int)}, the SQL is not modified.
+		 * @param _maxRows
+		 *        The maximum number of rows, or {@code 0} for no limit.
+		 */
+		public SqlSelectBuilder maxRows(int _maxRows) {
+			if (_maxRows < 0) throw new IllegalArgumentException("maxRows must be >= 0");
+			hints.maxRows = _maxRows;
+			return this;
+		}
+
+		/**
+		 * Cancel the query if it takes more than the specified time ({@link java.sql.Statement#setQueryTimeout}). The
+		 * timeout is rounded up to the second.
+		 * @param timeout
+		 *        The timeout, or {@code 0} for no limit.
+		 */
+		public SqlSelectBuilder queryTimeout(long timeout, TimeUnit unit) {
+			if (timeout < 0) throw new IllegalArgumentException("timeout must be >= 0");
+			final long seconds = (unit.toMillis(timeout) + 999) / 1000;
+			hints.queryTimeoutSeconds = (int) Math.min(seconds, Integer.MAX_VALUE);
+			return this;
+		}
+
+		/**
+		 * The type and concurrency of the result set (only honored by {@link #toStream}). The default is
+		 * {@code TYPE_FORWARD_ONLY}, {@code CONCUR_READ_ONLY}.
+		 * @param resultSetType
+		 *        One of the {@code ResultSet.TYPE_*} constants.
+		 * @param resultSetConcurrency
+		 *        One of the {@code ResultSet.CONCUR_*} constants.
+		 */
+		public SqlSelectBuilder resultSet(int resultSetType, int resultSetConcurrency) {
+			hints.resultSetType = resultSetType;
+			hints.resultSetConcurrency = resultSetConcurrency;
+			return this;
+		}
+
+		/**
+		 * Call a consumer on the statement before it is executed, after the other hints have been applied. Unlike
+		 * {@link Query#doBeforeExecution}, this does not replace the consumer applying the hints. Calling this method
+		 * again replaces the previous consumer.
+		 */
+		public SqlSelectBuilder doBeforeExecution(SQLConsumer<Statement> beforeExecution) {
+			hints.beforeExecution = beforeExecution;
+			return this;
+		}
+
 		public SqlSelectBuilder raw(Placement placement, SqlSelectClause location, String _sql,
 				PreparedStatementBinder binder) {
 			final SqlRaw clause = new SqlRaw(_sql, binder);
@@ -1596,16 +2731,50 @@ public class SqlBuilder {
 
 		@Override
 		public void appendTo(SqlStringBuilder w) {
+			appendColumnsTo(w);
+			w.appendln();
+			w.append("values ");
+			appendValuesTo(w);
+		}
+
+		/**
+		 * Append the list of columns, enclosed in parentheses.
+		 */
+		void appendColumnsTo(SqlStringBuilder w) {
 			w.append("(");
 			w.append(setClauses.stream().map(SetValueClause::getColumnName).collect(Collectors.joining(", ")));
 			w.append(")");
-			w.appendln();
-			w.append("values (");
-			w.append(setClauses.stream().map(SetValueClause::getValue).map(SqlFragment::getSql)
-					.collect(Collectors.joining(", ")));
+		}
+
+		/**
+		 * Append the list of values, enclosed in parentheses.
+		 */
+		void appendValuesTo(SqlStringBuilder w) {
+			w.append("(");
+			forEach_endAware(setClauses, (clause, first, last) -> {
+				w.append(clause.getValue());
+				if (!last) w.append(", ");
+			});
 			w.append(")");
 		}
 
+		public List<String> getColumnNames() {
+			return setClauses.stream().map(SetValueClause::getColumnName).collect(Collectors.toList());
+		}
+
+		/**
+		 * Return {@code true} if this clause sets exactly the specified columns, in order. Unlike
+		 * {@code getColumnNames().equals(columns)}, does not allocate.
+		 */
+		public boolean hasColumns(List<String> columns) {
+			if (setClauses.size() != columns.size()) return false;
+			final Iterator<String> it = columns.iterator();
+			for (final SetValueClause clause : setClauses) {
+				if (!clause.getColumnName().equals(it.next())) return false;
+			}
+			return true;
+		}
+
 	}
 
 	public class SqlInsertBuilder extends SqlStatement {
@@ -1646,6 +2815,18 @@ public class SqlBuilder {
 			if (body != null) body.bind(ps, index);
 		}
 
+		public String getTableName() {
+			return tableName;
+		}
+
+		/**
+		 * Return the {@code VALUES} clause, or {@code null} if this statement inserts the result of a subquery or has
+		 * no values.
+		 */
+		public InsertValuesBuilder getValues() {
+			return body instanceof InsertValuesBuilder ? (InsertValuesBuilder) body : null;
+		}
+
 		@Override
 		public void appendTo(SqlStringBuilder w) {
 			w.append("insert into ").append(tableName);
@@ -1665,6 +2846,122 @@ public class SqlBuilder {
 
 	}
 
+	/**
+	 * An {@code INSERT} statement inserting several rows at once. All rows must insert into the same table and the
+	 * same list of columns.
+	 * <p>
+	 * Uses the {@code INSERT INTO ... VALUES (...), (...)} syntax, or {@code INSERT ALL} if the dialect does not
+	 * support it.
+	 */
+	public class MultiRowInsertBuilder extends SqlStatement {
+		private final String tableName;
+		private final List<InsertValuesBuilder> rows;
+
+		public MultiRowInsertBuilder(String tableName, List<InsertValuesBuilder> rows) {
+			if (rows.isEmpty()) throw new IllegalArgumentException("rows must not be empty");
+			this.tableName = tableName;
+			this.rows = new ArrayList<>(rows);
+		}
+
+		@Override
+		public void bind(PreparedStatement ps, IntSequence index) throws SQLException {
+			for (final InsertValuesBuilder row : rows) {
+				row.bind(ps, index);
+			}
+		}
+
+		@Override
+		public void appendTo(SqlStringBuilder w) {
+			if (dialect.supportsMultiRowValues()) {
+				w.append("insert into ").append(tableName);
+				rows.get(0).appendColumnsTo(w);
+				w.appendln();
+				w.appendln("values");
+				w.increaseIndent();
+				forEach_endAware(rows, (row, first, last) -> {
+					row.appendValuesTo(w);
+					w.appendln(last ? "" : ",");
+				});
+				w.decreaseIndent();
+			} else {
+				w.appendln("insert all");
+				w.increaseIndent();
+				for (final InsertValuesBuilder row : rows) {
+					w.append("into ").append(tableName);
+					row.appendColumnsTo(w);
+					w.append(" values ");
+					row.appendValuesTo(w);
+					w.appendln();
+				}
+				w.decreaseIndent();
+				w.appendln("select * from dual");
+			}
+		}
+
+		public int getRowCount() {
+			return rows.size();
+		}
+	}
+
+	/**
+	 * Groups consecutive {@code INSERT} statements on the same table and columns into {@link MultiRowInsertBuilder}
+	 * statements, keeping the number of bind parameters of each statement under the limit of the dialect.
+	 * <p>
+	 * The number of parameters of a row is counted once per list of columns, on the first row of a group: rows
+	 * inserting the same columns are expected to bind the same number of parameters.
+	 */
+	private class MultiRowInsertIterator implements Iterator<SqlStatement> {
+		private final Iterator<? extends SqlInsertBuilder> inserts;
+		private final int maxRowsPerStatement;
+		/**
+		 * The next statement that does not belong to the current group, or {@code null}.
+		 */
+		private SqlInsertBuilder lookahead;
+		/**
+		 * The columns of the last group, and the number of parameters of each of its rows.
+		 */
+		private List<String> countedColumns;
+		private int rowParameterCount;
+
+		public MultiRowInsertIterator(Iterator<? extends SqlInsertBuilder> inserts, int maxRowsPerStatement) {
+			this.inserts = inserts;
+			this.maxRowsPerStatement = maxRowsPerStatement;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return lookahead != null || inserts.hasNext();
+		}
+
+		@Override
+		public SqlStatement next() {
+			final SqlInsertBuilder first = lookahead != null ? lookahead : inserts.next();
+			lookahead = null;
+			final InsertValuesBuilder firstValues = first.getValues();
+			if (firstValues == null) return first;
+
+			if (countedColumns == null || !firstValues.hasColumns(countedColumns)) {
+				countedColumns = firstValues.getColumnNames();
+				rowParameterCount = SqlUtils.countParameters(firstValues);
+			}
+			final int maxRows = rowParameterCount == 0 ? maxRowsPerStatement
+					: Math.max(1, Math.min(maxRowsPerStatement, dialect.getMaxBindParameters() / rowParameterCount));
+			final List<InsertValuesBuilder> rows = new ArrayList<>();
+			rows.add(firstValues);
+			while (rows.size() < maxRows && inserts.hasNext()) {
+				final SqlInsertBuilder insert = inserts.next();
+				final InsertValuesBuilder values = insert.getValues();
+				if (values == null || !insert.getTableName().equals(first.getTableName())
+						|| !values.hasColumns(countedColumns)) {
+					lookahead = insert;
+					break;
+				}
+				rows.add(values);
+			}
+			return rows.size() == 1 ? first : new MultiRowInsertBuilder(first.getTableName(), rows);
+		}
+	}
+
 	public class SqlUpdateBuilder extends SqlStatement {
 		private final Collection<SqlFragment> whereClauses = new ArrayList<>();
 		private final Collection<UpdateSetClause> setClauses = new ArrayList<>();
@@ -1849,12 +3146,23 @@ public class SqlBuilder {
 			w.append("when not matched then insert (");
 			w.append(insertClauses.stream().map(SqlMergeClause::getColumnName).collect(Collectors.joining(", ")));
 			w.append(") values (");
-			w.append(insertClauses.stream().map(SqlMergeClause::getValue).map(SqlFragment::getSql)
-					.collect(Collectors.joining(", ")));
+			forEach_endAware(insertClauses, (clause, first, last) -> {
+				w.append(clause.getValue());
+				if (!last) w.append(", ");
+			});
 			w.append(")");
 		}
 	}
 
+	/**
+	 * Bind the value at position {@code i} of an {@code IN} list, so that arrays of primitives are bound without
+	 * boxing.
+	 */
+	@FunctionalInterface
+	private interface InListValueBinder {
+		void bind(PreparedStatement ps, int parameterIndex, int i) throws SQLException;
+	}
+
 	@FunctionalInterface
 	private interface EndAwareConsumer<T> {
 		void accept(T value, boolean first, boolean last);
@@ -1899,15 +3207,15 @@ public class SqlBuilder {
 	 * Represent a batch statement. Unlike in JDBC where a batch statement is represented by a single
 	 * {@link java.sql.Statement} object, here the BatchStatement holds a collection of {@link SqlStatement} items.
 	 * <p>
-	 * Warning: each {@link SqlStatement} item must represent the same SQL statement. Only the first statement will be
-	 * converted to SQL.
-	 * <p>
-	 * At the moment, there is no check to actually make sure the SQL is the same. This may change in the future.
+	 * The statements may have different SQL: they are grouped by shape (see
+	 * {@link BatchStatementOperation#groupByShape(int)}). By default, the statements are executed strictly in order,
+	 * with a new JDBC batch each time the shape changes.
 	 */
 	public class BatchStatementBuilder {
 		private final Collection<SqlStatement> statements;
 		private long executeEveryNRow = -1;
 		private long commitEveryNRow = -1;
+		private int maxOpenStatements = 1;
 
 		public BatchStatementBuilder() {
 			this.statements = new ArrayList<>();
@@ -1923,6 +3231,17 @@ public class SqlBuilder {
 			return this;
 		}
 
+		/**
+		 * The maximum number of distinct statement shapes having an open {@code PreparedStatement} at any time.
+		 * Defaults to 1: the statements are executed strictly in order. A greater value batches statements of the same
+		 * shape together, but does not preserve the order of statements across shapes, e.g {@code delete A; insert A;
+		 * delete A} executes both deletes before the insert.
+		 */
+		public BatchStatementBuilder maxOpenStatements(int _maxOpenStatements) {
+			this.maxOpenStatements = _maxOpenStatements;
+			return this;
+		}
+
 		public BatchStatementBuilder(Collection<? extends SqlStatement> statements) {
 			this.statements = new ArrayList<>(statements);
 		}
@@ -1936,18 +3255,275 @@ public class SqlBuilder {
 		}
 
 		public BatchStatementOperation<SqlStatement> toStatement() {
-			return fjdbc.batchStatement(statements.stream(), executeEveryNRow, commitEveryNRow);
+			return fjdbc.batchStatement(statements.stream(), executeEveryNRow, commitEveryNRow)
+					.groupByShape(maxOpenStatements);
 		}
 	}
 
 	/**
-	 * Debug statements by printing the value of prepared values in a comment next to the '?' placeholder.
+	 * Debug statements by printing the value of prepared values in a comment next to the '?' placeholder (see
+	 * {@link SqlFragment#getDebugSql()}).
 	 */
 	public boolean isDebug() {
 		return debug;
 	}
 
+	public BiConsumer<String, List<Object>> getDebugListener() {
+		return debugListener;
+	}
+
+	/**
+	 * Set a listener notified with the SQL of each statement and query created by this builder, and the values bound
+	 * to its parameters (in the order of the placeholders), each time the statement is bound. The executed SQL is
+	 * unchanged, so this can be used under load (e.g to log statements). Batch statements are not reported.
+	 * @param debugListener
+	 *        The listener, or {@code null} to remove it. Called on the thread executing the statement.
+	 */
+	public void setDebugListener(BiConsumer<String, List<Object>> debugListener) {
+		this.debugListener = debugListener;
+	}
+
+	/**
+	 * Return a binder setting the values currently bound by a fragment, so that the fragment may be modified
+	 * afterwards; or the fragment itself if its values cannot be bound without a connection.
+	 */
+	static PreparedStatementBinder snapshot(SqlFragment fragment) {
+		final PreparedStatementBinder res = SqlUtils.snapshot(fragment);
+		return res == null ? fragment : res;
+	}
+
+	/**
+	 * Return a binder reporting the bound values to the debug listener, or the binder itself if there is no listener.
+	 */
+	PreparedStatementBinder withDebugListener(String sql, PreparedStatementBinder binder) {
+		final BiConsumer<String, List<Object>> listener = debugListener;
+		if (listener == null) return binder;
+		return SqlUtils.recordingBinder(binder, values -> listener.accept(sql, values));
+	}
+
+	/**
+	 * The fetch size of streams (see {@link SqlSelectStatement#toStream(ResultSetExtractor)}) that do not specify one.
+	 * Initialized with {@link SqlDialect#getDefaultFetchSize()}. Queries only use an explicit fetch size (see
+	 * {@link SqlSelectBuilder#fetchSize(int)}).
+	 */
+	public int getDefaultFetchSize() {
+		return defaultFetchSize;
+	}
+
+	/**
+	 * @param defaultFetchSize
+	 *        The fetch size of streams that do not specify one, or {@code 0} to use the default of the JDBC driver.
+	 */
+	public void setDefaultFetchSize(int defaultFetchSize) {
+		if (defaultFetchSize < 0) throw new IllegalArgumentException("defaultFetchSize must be >= 0");
+		this.defaultFetchSize = defaultFetchSize;
+	}
+
+	public boolean isCompact() {
+		return compact;
+	}
+
+	/**
+	 * If {@code true}, statements are rendered on a single line, with single spaces and no indentation, which reduces
+	 * the size of the SQL sent to the database and of the statement cache keys. The output only depends on the
+	 * structure and values of the statement. Default is {@code false} (pretty-printed SQL).
+	 */
+	public void setCompact(boolean compact) {
+		this.compact = compact;
+	}
+
+	/**
+	 * Render a fragment in the rendering mode of this builder.
+	 */
+	public String render(SqlFragment fragment) {
+		return render(fragment, false);
+	}
+
+	public int getMaxCachedShapes() {
+		return maxCachedShapes;
+	}
+
+	/**
+	 * The rendered SQL of statements is cached by shape: the fragment tree of a statement is walked once to compute a
+	 * key identifying its SQL, which is only rendered if the key is not in the cache. Statements differing only by the
+	 * values of their parameters have the same key.
+	 * @param maxCachedShapes
+	 *        The maximum number of cached statements (the cache is cleared when it is full), or {@code 0} to disable
+	 *        the cache. Default is 1024.
+	 */
+	public void setMaxCachedShapes(int maxCachedShapes) {
+		if (maxCachedShapes < 0) throw new IllegalArgumentException("maxCachedShapes must be >= 0");
+		this.maxCachedShapes = maxCachedShapes;
+		shapeCache.clear();
+	}
+
+	/**
+	 * @param printValues
+	 *        See {@link SqlFragment#getDebugSql()}. The SQL is only cached if {@code false}.
+	 */
+	String render(SqlFragment fragment, boolean printValues) {
+		final int _maxCachedShapes = maxCachedShapes;
+		final boolean _compact = compact;
+		if (printValues || _maxCachedShapes == 0) return renderUncached(fragment, printValues, _compact);
+
+		final SqlStringBuilder hasher = SqlStringBuilder.hashing(_compact);
+		try {
+			fragment.appendTo(hasher);
+			final ShapeKey key = hasher.getShapeKey();
+			String res = shapeCache.get(key);
+			if (res == null) {
+				res = renderUncached(fragment, false, _compact);
+				if (shapeCache.size() >= _maxCachedShapes) shapeCache.clear();
+				shapeCache.put(key.copy(), res);
+			}
+			return res;
+		} finally {
+			hasher.release();
+		}
+	}
+
+	private String renderUncached(SqlFragment fragment, boolean printValues, boolean _compact) {
+		final SqlStringBuilder builder = SqlStringBuilder.acquire(printValues, _compact);
+		try {
+			fragment.appendTo(builder);
+			return builder.getSql();
+		} finally {
+			builder.release();
+		}
+	}
+
+	public InListStrategy getInListStrategy() {
+		return inListStrategy;
+	}
+
+	/**
+	 * How {@code IN} conditions on a collection of values are rendered. Default is
+	 * {@link InListStrategy#PLACEHOLDERS}.
+	 */
+	public void setInListStrategy(InListStrategy inListStrategy) {
+		if (inListStrategy == null) throw new IllegalArgumentException();
+		this.inListStrategy = inListStrategy;
+	}
+
+	/**
+	 * Bound the number of distinct SQL strings generated by {@code IN} conditions with the
+	 * {@link InListStrategy#PLACEHOLDERS} strategy, so that the statement caches of the driver and the database are not
+	 * flooded.
+	 * <p>
+	 * If enabled, values are deduplicated and sorted, then the list is padded with its last value up to the next power
+	 * of two. Values that are not comparable, or not all of the same class, are kept in their original order. Null
+	 * values are removed, since they never match: a list of null values is rendered as {@code 1=0}.
+	 */
+	public void setInListBucketing(boolean enabled) {
+		inListBucketSize = enabled ? n -> n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1 : null;
+	}
+
+	/**
+	 * Same as {@link #setInListBucketing(boolean)}, with explicit bucket sizes instead of powers of two. Lists larger
+	 * than the largest bucket are padded to a multiple of it.
+	 * @param sizes
+	 *        The bucket sizes, e.g {@code 10, 50, 100, 500, 1000}.
+	 */
+	public void setInListBuckets(int... sizes) {
+		if (sizes.length == 0) throw new IllegalArgumentException("At least one bucket size is required");
+		final int[] _sizes = Arrays.stream(sizes).sorted().distinct().toArray();
+		if (_sizes[0] <= 0) throw new IllegalArgumentException("Bucket sizes must be > 0");
+		inListBucketSize = n -> {
+			for (final int size : _sizes) {
+				if (size >= n) return size;
+			}
+			final int largest = _sizes[_sizes.length - 1];
+			return (n + largest - 1) / largest * largest;
+		};
+	}
+
 	public ConnectionProvider getConnectionProvider() {
 		return fjdbc.getConnectionProvider();
 	}
+
+	Fjdbc getFjdbc() {
+		return fjdbc;
+	}
+
+	public int getAsyncConcurrencyLimit() {
+		synchronized (asyncLock) {
+			return asyncConcurrencyLimit;
+		}
+	}
+
+	/**
+	 * Limit the number of asynchronous operations ({@link SqlStatement#executeAsync},
+	 * {@link SqlSelectStatement#toListAsync}) of this builder running concurrently.
+	 * <p>
+	 * Operations over the limit wait in a queue, without holding a thread of their executor, and are submitted to
+	 * their executor in order as running operations complete. Lowering the limit does not affect the running
+	 * operations.
+	 * @param maxConcurrent
+	 *        The maximum number of concurrent operations, or {@code 0} for no limit (the default).
+	 */
+	public void setAsyncConcurrencyLimit(int maxConcurrent) {
+		if (maxConcurrent < 0) throw new IllegalArgumentException("maxConcurrent must be >= 0");
+		final List<Runnable> startable = new ArrayList<>();
+		synchronized (asyncLock) {
+			asyncConcurrencyLimit = maxConcurrent;
+			pollStartableAsyncOperations(startable);
+		}
+		startable.forEach(Runnable::run);
+	}
+
+	/**
+	 * Run a task on the specified executor, within the concurrency limit of this builder.
+	 */
+	<U> CompletableFuture<U> supplyAsync(Supplier<U> task, Executor executor) {
+		final CompletableFuture<U> res = new CompletableFuture<>();
+		final Runnable start = () -> {
+			try {
+				executor.execute(() -> {
+					try {
+						// the future may have been cancelled while waiting
+						if (!res.isDone()) res.complete(task.get());
+					} catch (final Throwable e) {
+						res.completeExceptionally(e);
+					} finally {
+						asyncOperationCompleted();
+					}
+				});
+			} catch (final RuntimeException e) {
+				// e.g RejectedExecutionException
+				res.completeExceptionally(e);
+				asyncOperationCompleted();
+			}
+		};
+		synchronized (asyncLock) {
+			if (asyncConcurrencyLimit > 0 && runningAsyncOperations >= asyncConcurrencyLimit) {
+				pendingAsyncOperations.add(start);
+				return res;
+			}
+			runningAsyncOperations++;
+		}
+		start.run();
+		return res;
+	}
+
+	private void asyncOperationCompleted() {
+		final List<Runnable> startable = new ArrayList<>();
+		synchronized (asyncLock) {
+			runningAsyncOperations--;
+			pollStartableAsyncOperations(startable);
+		}
+		startable.forEach(Runnable::run);
+	}
+
+	/**
+	 * Remove the pending operations that can be started within the limit, and count them as running. They must be
+	 * started outside of the lock.
+	 */
+	private void pollStartableAsyncOperations(List<Runnable> startable) {
+		assert Thread.holdsLock(asyncLock);
+		while (!pendingAsyncOperations.isEmpty()
+				&& (asyncConcurrencyLimit == 0 || runningAsyncOperations < asyncConcurrencyLimit)) {
+			startable.add(pendingAsyncOperations.remove());
+			runningAsyncOperations++;
+		}
+	}
 }
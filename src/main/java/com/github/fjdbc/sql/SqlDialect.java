@@ -8,9 +8,144 @@ public enum SqlDialect {
 	/**
 	 * Use this when no other dialect applies. Try to provide a behavior as standard as possible.
 	 */
-	STANDARD,
+	STANDARD(2100, 0),
 	/**
 	 * Oracle database
 	 */
-	ORACLE
-}
\ No newline at end of file
+	ORACLE(65535, 500),
+	/**
+	 * PostgreSQL database
+	 */
+	POSTGRESQL(32767, 1000),
+	/**
+	 * Microsoft SQL Server database
+	 */
+	SQLSERVER(2100, 0),
+	/**
+	 * MySQL database
+	 */
+	MYSQL(65535, 0),
+	/**
+	 * H2 database
+	 */
+	H2(65535, 0);
+
+	private final int maxBindParameters;
+	private final int defaultFetchSize;
+
+	SqlDialect(int maxBindParameters, int defaultFetchSize) {
+		this.maxBindParameters = maxBindParameters;
+		this.defaultFetchSize = defaultFetchSize;
+	}
+
+	/**
+	 * The maximum number of bind parameters ('?' placeholders) allowed by the driver in a single statement.
+	 * <p>
+	 * For the {@link #STANDARD} dialect, this is the lowest limit among common drivers.
+	 */
+	public int getMaxBindParameters() {
+		return maxBindParameters;
+	}
+
+	/**
+	 * The fetch size used by streams that do not specify one, or {@code 0} to keep the default of the JDBC driver (see
+	 * {@link SqlBuilder#setDefaultFetchSize(int)}).
+	 * <p>
+	 * The Oracle driver fetches 10 rows per round trip by default, which is far too low for large result sets. The
+	 * PostgreSQL driver fetches all rows at once unless a fetch size is set.
+	 */
+	public int getDefaultFetchSize() {
+		return defaultFetchSize;
+	}
+
+	/**
+	 * Whether row values may be compared with the {@code <} and {@code >} operators, as in
+	 * {@code (a, b) > (?, ?)}.
+	 */
+	public boolean supportsRowValueComparison() {
+		return this != ORACLE && this != SQLSERVER;
+	}
+
+	/**
+	 * The condition testing whether {@code lhs} belongs to an array bound to a single '?' placeholder, or {@code null}
+	 * if the dialect does not support it.
+	 * @see InListStrategy#ARRAY
+	 */
+	public String getArrayInCondition(String lhs) {
+		switch (this) {
+		case POSTGRESQL:
+			return lhs + " = any(?)";
+		case H2:
+			return lhs + " in (unnest(?))";
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * The condition testing whether {@code lhs} belongs to a derived table of {@code count} rows, each bound to a
+	 * single '?' placeholder, or {@code null} if the dialect does not support it.
+	 * @see InListStrategy#VALUES
+	 */
+	public String getValuesInCondition(String lhs, int count) {
+		if (this == ORACLE || this == MYSQL) return null;
+		final StringBuilder res = new StringBuilder(lhs.length() + count * 5 + 40);
+		res.append(lhs).append(" in (select k from (values (?)");
+		for (int i = 1; i < count; i++) {
+			res.append(", (?)");
+		}
+		res.append(") as v(k))");
+		return res.toString();
+	}
+
+	/**
+	 * The statement creating a session-scoped temporary table if it does not exist yet, whose rows are deleted at the
+	 * end of each transaction. Return {@code null} if the dialect does not support it.
+	 * @param columns
+	 *        The column definitions, e.g {@code "id bigint, k varchar"}.
+	 * @see InListStrategy#TEMP_TABLE
+	 */
+	public String getCreateTempTableSql(String table, String columns) {
+		switch (this) {
+		case POSTGRESQL:
+			return "create temporary table if not exists " + table + " (" + columns + ") on commit delete rows";
+		case H2:
+			return "create local temporary table if not exists " + table + " (" + columns + ") on commit delete rows";
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * The statement dropping a temporary table created with {@link #getCreateTempTableSql(String, String)}.
+	 */
+	public String getDropTempTableSql(String table) {
+		return "drop table if exists " + table;
+	}
+
+	/**
+	 * The SQL type name of the elements of an array of values of the specified type, as passed to
+	 * {@link java.sql.Connection#createArrayOf(String, Object[])}, or {@code null} if the type is not supported.
+	 */
+	public String getArrayTypeName(Class<?> type) {
+		if (type == String.class) return "varchar";
+		if (type == Integer.class) return "integer";
+		if (type == Long.class) return "bigint";
+		if (type == java.math.BigDecimal.class) return "numeric";
+		if (type == Boolean.class) return "boolean";
+		if (type == Float.class) return "real";
+		if (type == Double.class) return "double precision";
+		if (type == java.sql.Date.class) return "date";
+		if (type == java.sql.Time.class) return "time";
+		if (type == java.sql.Timestamp.class) return "timestamp";
+		return null;
+	}
+
+	/**
+	 * Whether a single {@code INSERT} statement may insert several rows using the
+	 * {@code INSERT INTO ... VALUES (...), (...)} syntax. Otherwise, the {@code INSERT ALL} syntax is used.
+	 */
+	public boolean supportsMultiRowValues() {
+		return this != ORACLE;
+	}
+}
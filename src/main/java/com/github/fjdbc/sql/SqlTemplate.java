@@ -0,0 +1,234 @@
+package com.github.fjdbc.sql;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.fjdbc.IntSequence;
+import com.github.fjdbc.PreparedStatementBinder;
+import com.github.fjdbc.RuntimeSQLException;
+import com.github.fjdbc.op.StatementOperation;
+import com.github.fjdbc.query.Query;
+import com.github.fjdbc.query.ResultSetExtractor;
+import com.github.fjdbc.sql.SqlBuilder.SqlFragment;
+import com.github.fjdbc.sql.SqlBuilder.SqlSelectStatement;
+
+/**
+ * A statement compiled once (see {@link SqlBuilder#compile(SqlFragment)}) and executed many times with different
+ * values, without building the statement again.
+ * <p>
+ * The template holds the SQL of the statement and one typed slot per {@code ?} placeholder, in order. The type of a
+ * slot is resolved from the {@code PreparedStatement} setter called for the placeholder when the statement was
+ * compiled; it is {@code Object} if the value was {@code NULL} or bound with an untyped setter (e.g
+ * {@code setObject}).
+ * <p>
+ * Templates are immutable and thread-safe. The values are held by a {@link Binding}, which is not thread-safe.
+ */
+public class SqlTemplate {
+	private final SqlBuilder builder;
+	private final String sql;
+	/**
+	 * The binder of each slot, or null if the type of the slot is {@code Object}.
+	 */
+	private final JdbcBinder[] binders;
+	/**
+	 * Null if the statement is not a query.
+	 */
+	private final QueryHints hints;
+
+	/**
+	 * @see SqlBuilder#compile(SqlFragment)
+	 */
+	SqlTemplate(SqlBuilder builder, SqlFragment statement) {
+		this.builder = builder;
+		this.sql = builder.render(statement, false);
+		this.binders = recordBinders(statement);
+		this.hints = statement instanceof SqlSelectStatement ? ((SqlSelectStatement) statement).hints.copy() : null;
+	}
+
+	/**
+	 * Bind the statement to a recording {@code PreparedStatement} to find out the setter called for each placeholder.
+	 * The recording statement has no connection: binders needing one (e.g to create an array) fail with
+	 * {@link SqlUtils.ConnectionRequiredException}.
+	 */
+	private static JdbcBinder[] recordBinders(SqlFragment statement) {
+		final List<JdbcBinder> res = new ArrayList<>();
+		final PreparedStatement ps = (PreparedStatement) Proxy.newProxyInstance(SqlTemplate.class.getClassLoader(),
+				new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+					if (method.getName().equals("getConnection")) throw new SqlUtils.ConnectionRequiredException();
+					if (method.getName().startsWith("set") && args != null && args.length >= 1
+							&& args[0] instanceof Integer) {
+						final int index = (Integer) args[0];
+						while (res.size() < index) {
+							res.add(null);
+						}
+						res.set(index - 1, JdbcBinder.ofSetter(method.getName()));
+					}
+					return null;
+				});
+		try {
+			statement.bind(ps, new IntSequence(1));
+		} catch (final SqlUtils.ConnectionRequiredException e) {
+			// e.g IN conditions using the ARRAY or TEMP_TABLE strategies
+			throw new IllegalArgumentException("The statement cannot be compiled: its parameters cannot be bound "
+					+ "without a database connection", e);
+		} catch (final SQLException e) {
+			throw new RuntimeSQLException(e);
+		}
+		return res.toArray(new JdbcBinder[res.size()]);
+	}
+
+	public String getSql() {
+		return sql;
+	}
+
+	public int getSlotCount() {
+		return binders.length;
+	}
+
+	/**
+	 * Return the type of the values of a slot.
+	 * @param slot
+	 *        The index of the slot, starting at 0.
+	 */
+	public Class<?> getSlotType(int slot) {
+		checkSlot(slot);
+		return binders[slot] == null ? Object.class : binders[slot].getType();
+	}
+
+	/**
+	 * Return a typed handle on a slot, to be used with {@link Binding#set(Slot, Object)}.
+	 * @param slot
+	 *        The index of the slot, starting at 0.
+	 * @throws IllegalArgumentException
+	 *         If the values of the slot are not of the specified type.
+	 */
+	public <T> Slot<T> slot(int slot, Class<T> type) {
+		if (type == null) throw new IllegalArgumentException();
+		if (!getSlotType(slot).isAssignableFrom(type)) {
+			throw new IllegalArgumentException(
+					String.format("Slot %d is of type %s, not %s", slot, getSlotType(slot).getName(), type.getName()));
+		}
+		return new Slot<>(slot, type);
+	}
+
+	/**
+	 * Return a new binding of this template, with all values set to {@code null}.
+	 */
+	public Binding newBinding() {
+		return new Binding();
+	}
+
+	/**
+	 * Return a new binding of this template.
+	 * @param values
+	 *        The value of each slot, in order.
+	 * @throws IllegalArgumentException
+	 *         If the number of values is not the number of slots, or a value is not of the type of its slot.
+	 */
+	public Binding bind(Object... values) {
+		if (values.length != binders.length) {
+			throw new IllegalArgumentException(
+					String.format("Expected %d values, got %d", binders.length, values.length));
+		}
+		final Binding res = new Binding();
+		for (int i = 0; i < values.length; i++) {
+			res.setValue(i, values[i]);
+		}
+		return res;
+	}
+
+	private void checkSlot(int slot) {
+		if (slot < 0 || slot >= binders.length) {
+			throw new IllegalArgumentException(
+					String.format("Slot %d does not exist (%d slots)", slot, binders.length));
+		}
+	}
+
+	/**
+	 * A slot of a template, whose values are of type {@code T}.
+	 */
+	public static final class Slot<T> {
+		private final int index;
+		private final Class<T> type;
+
+		private Slot(int index, Class<T> type) {
+			this.index = index;
+			this.type = type;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public Class<T> getType() {
+			return type;
+		}
+	}
+
+	/**
+	 * The values of the slots of a template.
+	 */
+	public class Binding implements PreparedStatementBinder {
+		private final Object[] values = new Object[binders.length];
+
+		private Binding() {
+			// use SqlTemplate.bind or SqlTemplate.newBinding
+		}
+
+		public <T> Binding set(Slot<T> slot, T value) {
+			checkSlot(slot.index);
+			values[slot.index] = value;
+			return this;
+		}
+
+		/**
+		 * @param slot
+		 *        The index of the slot, starting at 0.
+		 * @throws IllegalArgumentException
+		 *         If the value is not of the type of the slot.
+		 */
+		public Binding setValue(int slot, Object value) {
+			final Class<?> type = getSlotType(slot);
+			if (value != null && !type.isInstance(value)) {
+				throw new IllegalArgumentException(String.format("Slot %d is of type %s, got a value of type %s", slot,
+						type.getName(), value.getClass().getName()));
+			}
+			values[slot] = value;
+			return this;
+		}
+
+		@Override
+		public void bind(PreparedStatement ps, IntSequence index) throws SQLException {
+			for (int i = 0; i < values.length; i++) {
+				final Object value = values[i];
+				final JdbcBinder binder = binders[i] != null || value == null ? binders[i]
+						: JdbcBinder.of(value.getClass());
+				if (binder == null && value != null) {
+					ps.setObject(index.next(), value);
+				} else {
+					builder.setAnyObject(ps, index.next(), value, binder);
+				}
+			}
+		}
+
+		/**
+		 * Create a query. The hints of the compiled query (fetch size, max rows, query timeout, before execution
+		 * consumer) are applied, as by {@link SqlSelectStatement#toQuery(ResultSetExtractor)}.
+		 * @throws IllegalStateException
+		 *         If the compiled statement is not a query.
+		 */
+		public <T> Query<T> toQuery(ResultSetExtractor<T> extractor) {
+			if (hints == null) throw new IllegalStateException("The compiled statement is not a query");
+			final Query<T> res = builder.getFjdbc().query(sql, builder.withDebugListener(sql, this), extractor);
+			if (hints.hasStatementOptions(0)) res.doBeforeExecution(st -> hints.apply(st, 0));
+			return res;
+		}
+
+		public StatementOperation toStatement() {
+			return builder.getFjdbc().statement(sql, builder.withDebugListener(sql, this));
+		}
+	}
+}
@@ -1,8 +1,20 @@
 package com.github.fjdbc.sql;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import com.github.fjdbc.IntSequence;
+import com.github.fjdbc.PreparedStatementBinder;
+import com.github.fjdbc.RuntimeSQLException;
 
 public class SqlUtils {
 	/**
@@ -64,4 +76,109 @@ public class SqlUtils {
 	public static String toLiteralString(String s) {
 		return "'" + escapeString(s) + "'";
 	}
+
+	/**
+	 * Count the number of parameters bound by a binder, without a database connection.
+	 */
+	public static int countParameters(PreparedStatementBinder binder) {
+		final int[] maxIndex = new int[1];
+		final PreparedStatement ps = (PreparedStatement) Proxy.newProxyInstance(SqlUtils.class.getClassLoader(),
+				new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+					if (method.getName().startsWith("set") && args != null && args.length >= 1
+							&& args[0] instanceof Integer) {
+						maxIndex[0] = Math.max(maxIndex[0], (Integer) args[0]);
+					}
+					return null;
+				});
+		try {
+			binder.bind(ps, new IntSequence(1));
+		} catch (final SQLException e) {
+			throw new IllegalStateException(e);
+		}
+		return maxIndex[0];
+	}
+
+	/**
+	 * Bind the values of a binder once, without a database connection, and return a binder setting the same values
+	 * again. The returned binder does not depend on the state of the original binder anymore.
+	 * @return The snapshot, or {@code null} if the binder needs a connection to bind its values (e.g {@code IN}
+	 *         conditions using the {@link InListStrategy#ARRAY} or {@link InListStrategy#TEMP_TABLE} strategies).
+	 */
+	static PreparedStatementBinder snapshot(PreparedStatementBinder binder) {
+		final List<Method> setters = new ArrayList<>();
+		final List<Object[]> arguments = new ArrayList<>();
+		final PreparedStatement recorder = (PreparedStatement) Proxy.newProxyInstance(SqlUtils.class.getClassLoader(),
+				new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> {
+					if (method.getName().equals("getConnection")) throw new ConnectionRequiredException();
+					if (method.getName().startsWith("set") && args != null && args.length >= 2
+							&& args[0] instanceof Integer) {
+						setters.add(method);
+						arguments.add(args.clone());
+					}
+					return null;
+				});
+		final IntSequence recordedIndex = new IntSequence(1);
+		try {
+			binder.bind(recorder, recordedIndex);
+		} catch (final ConnectionRequiredException e) {
+			return null;
+		} catch (final SQLException e) {
+			throw new RuntimeSQLException(e);
+		}
+		final int parameterCount = recordedIndex.get() - 1;
+		return (ps, index) -> {
+			final int offset = index.get() - 1;
+			for (int i = 0; i < setters.size(); i++) {
+				final Object[] args = arguments.get(i).clone();
+				args[0] = (Integer) args[0] + offset;
+				try {
+					setters.get(i).invoke(ps, args);
+				} catch (final InvocationTargetException e) {
+					final Throwable cause = e.getCause();
+					if (cause instanceof SQLException) throw (SQLException) cause;
+					if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+					if (cause instanceof Error) throw (Error) cause;
+					throw new IllegalStateException(cause);
+				} catch (final IllegalAccessException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+			for (int i = 0; i < parameterCount; i++) {
+				index.next();
+			}
+		};
+	}
+
+	/**
+	 * Thrown by a recording {@code PreparedStatement}, which has no connection, when its connection is requested.
+	 */
+	static class ConnectionRequiredException extends SQLException {
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * Wrap a binder so that the values it binds are reported, ordered by parameter index, once the statement is bound.
+	 * The values are bound to the actual statement as usual. {@code setNull} is reported as a {@code null} value.
+	 */
+	public static PreparedStatementBinder recordingBinder(PreparedStatementBinder binder,
+			Consumer<List<Object>> onBound) {
+		return (ps, index) -> {
+			final Map<Integer, Object> values = new TreeMap<>();
+			final PreparedStatement recorder = (PreparedStatement) Proxy.newProxyInstance(
+					SqlUtils.class.getClassLoader(), new Class<?>[] { PreparedStatement.class },
+					(proxy, method, args) -> {
+						if (method.getName().startsWith("set") && args != null && args.length >= 2
+								&& args[0] instanceof Integer) {
+							values.put((Integer) args[0], method.getName().equals("setNull") ? null : args[1]);
+						}
+						try {
+							return method.invoke(ps, args);
+						} catch (final InvocationTargetException e) {
+							throw e.getCause();
+						}
+					});
+			binder.bind(recorder, index);
+			onBound.accept(new ArrayList<>(values.values()));
+		};
+	}
 }
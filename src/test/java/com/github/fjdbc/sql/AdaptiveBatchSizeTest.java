@@ -0,0 +1,88 @@
+package com.github.fjdbc.sql;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class AdaptiveBatchSizeTest {
+	private final MockDatabase db = new MockDatabase();
+
+	@Test
+	public void testTargetLatency() {
+		final AdaptiveBatchSize policy = AdaptiveBatchSize.targetLatency(10, TimeUnit.MILLISECONDS, 10, 1010);
+		assertEquals(10, policy.getBatchSize());
+		// additive increase of (1010 - 10) / 100 rows
+		policy.batchExecuted(10, TimeUnit.MILLISECONDS.toNanos(1));
+		assertEquals(20, policy.getBatchSize());
+		policy.batchExecuted(20, TimeUnit.MILLISECONDS.toNanos(1));
+		assertEquals(30, policy.getBatchSize());
+		// a partial batch does not show whether a larger size would fit
+		policy.batchExecuted(5, TimeUnit.MILLISECONDS.toNanos(1));
+		assertEquals(30, policy.getBatchSize());
+		// multiplicative decrease
+		policy.batchExecuted(30, TimeUnit.MILLISECONDS.toNanos(20));
+		assertEquals(15, policy.getBatchSize());
+		policy.batchExecuted(15, TimeUnit.MILLISECONDS.toNanos(20));
+		assertEquals(10, policy.getBatchSize());
+		assertEquals(5, policy.getExecutionCount());
+	}
+
+	@Test
+	public void testMaxThroughput() {
+		final AdaptiveBatchSize policy = AdaptiveBatchSize.maxThroughput(100, 200);
+		policy.batchExecuted(100, TimeUnit.MILLISECONDS.toNanos(10));
+		assertEquals(125, policy.getBatchSize());
+		policy.batchExecuted(125, TimeUnit.MILLISECONDS.toNanos(10));
+		assertEquals(157, policy.getBatchSize());
+		// the throughput drops: go back
+		policy.batchExecuted(157, TimeUnit.MILLISECONDS.toNanos(100));
+		assertEquals(125, policy.getBatchSize());
+		assertEquals(125, policy.getBestBatchSize());
+		assertEquals(12500, policy.getBestThroughput(), 1e-6);
+	}
+
+	@Test
+	public void testBounds() {
+		final AdaptiveBatchSize policy = AdaptiveBatchSize.maxThroughput(100, 110);
+		policy.batchExecuted(100, TimeUnit.MILLISECONDS.toNanos(10));
+		assertEquals(110, policy.getBatchSize());
+	}
+
+	/**
+	 * With a target latency that is never reached, each batch is one row larger than the previous one.
+	 */
+	@Test
+	public void testBatchSizeOfExecutions() {
+		final BatchStatementOperation<?> op = new BatchStatementOperation<>(db.provider(),
+				BatchStatementOperationTest.rows(20), -1, -1);
+		final AdaptiveBatchSize policy = AdaptiveBatchSize.targetLatency(1, TimeUnit.HOURS, 2, 102);
+		op.setFlushPolicy(policy);
+		op.executeAndCommit();
+		assertEquals(Arrays.asList("executeBatch 2", "executeBatch 3", "executeBatch 4", "executeBatch 5",
+				"executeBatch 6"), db.events("executeBatch"));
+		assertEquals(5, policy.getExecutionCount());
+	}
+
+	/**
+	 * The re-executions used to isolate the failing rows of a batch are not reported to the policy.
+	 */
+	@Test
+	public void testIsolationNotReported() {
+		db.failingRow = row -> row.get(0).equals(3);
+		final BatchStatementOperation<?> op = new BatchStatementOperation<>(db.provider(),
+				BatchStatementOperationTest.rows(8), -1, -1);
+		final AdaptiveBatchSize policy = AdaptiveBatchSize.targetLatency(1, TimeUnit.HOURS, 4, 104);
+		op.setFlushPolicy(policy);
+		op.setFailureIsolation(4);
+		op.setErrorHandler((e, st) -> {
+			// ignore
+		});
+		op.executeAndCommit();
+		// the first batch fails and is bisected; only the second one is reported
+		assertEquals(1, policy.getExecutionCount());
+		assertEquals(5, policy.getBatchSize());
+	}
+}
@@ -0,0 +1,154 @@
+package com.github.fjdbc.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Test;
+
+import com.github.fjdbc.IntSequence;
+import com.github.fjdbc.PreparedStatementBinder;
+import com.github.fjdbc.sql.SqlBuilder.SqlSelectBuilder;
+
+/**
+ * Tests the asynchronous execution of statements on a {@link MockDatabase}.
+ */
+public class AsyncExecutionTest {
+	private final MockDatabase db = new MockDatabase();
+	private final SqlBuilder sql = new SqlBuilder(null, SqlDialect.STANDARD, false);
+
+	/**
+	 * The values bound by an asynchronous execution are the values of the statement when it was submitted.
+	 */
+	@Test
+	public void testSnapshot() throws SQLException {
+		db.autoCommit = true;
+		final SqlSelectBuilder select = sql.select("ename").from("emp").where("empno").eq().value(7839);
+		final String selectSql = select.getSql();
+		final PreparedStatementBinder snapshot = SqlBuilder.snapshot(select);
+		select.where("deptno").eq().value(10);
+
+		final PreparedStatement ps = db.newConnection().prepareStatement(selectSql);
+		final IntSequence index = new IntSequence(1);
+		snapshot.bind(ps, index);
+		ps.executeUpdate();
+		assertEquals(2, index.get());
+		assertEquals(Arrays.asList(Collections.singletonList(7839)), db.committedRows);
+	}
+
+	/**
+	 * A statement whose values need a connection to be bound is not recorded.
+	 */
+	@Test
+	public void testNoSnapshotWithoutConnection() {
+		final SqlBuilder postgresql = new SqlBuilder(null, SqlDialect.POSTGRESQL, false);
+		postgresql.setInListStrategy(InListStrategy.ARRAY);
+		final SqlSelectBuilder select = postgresql.select("ename").from("emp").where("empno")
+				.in_Long(Arrays.asList(1L, 2L));
+		assertEquals(select, SqlBuilder.snapshot(select));
+	}
+
+	/**
+	 * An executor running its tasks when asked to, on the calling thread.
+	 */
+	private static class ManualExecutor implements Executor {
+		private final List<Runnable> tasks = new ArrayList<>();
+
+		@Override
+		public void execute(Runnable command) {
+			tasks.add(command);
+		}
+
+		void runNext() {
+			tasks.remove(0).run();
+		}
+	}
+
+	@Test
+	public void testCompletion() throws Exception {
+		final CompletableFuture<Integer> res = sql.supplyAsync(() -> 42, Runnable::run);
+		assertEquals(42, (int) res.get());
+	}
+
+	@Test
+	public void testFailure() {
+		sql.setAsyncConcurrencyLimit(1);
+		final IllegalStateException failure = new IllegalStateException();
+		final CompletableFuture<Integer> res = sql.supplyAsync(() -> {
+			throw failure;
+		}, Runnable::run);
+		final ExecutionException e = assertThrows(ExecutionException.class, res::get);
+		assertSame(failure, e.getCause());
+		// the permit of the failed operation is given back
+		assertTrue(sql.supplyAsync(() -> 1, Runnable::run).isDone());
+	}
+
+	@Test
+	public void testRejected() {
+		sql.setAsyncConcurrencyLimit(1);
+		final CompletableFuture<Integer> rejected = sql.supplyAsync(() -> 1, command -> {
+			throw new RejectedExecutionException();
+		});
+		assertTrue(rejected.isCompletedExceptionally());
+		// the permit of the rejected operation is given back
+		assertTrue(sql.supplyAsync(() -> 2, Runnable::run).isDone());
+	}
+
+	/**
+	 * Operations over the limit are not submitted to the executor until a running operation completes.
+	 */
+	@Test
+	public void testLimit() throws Exception {
+		sql.setAsyncConcurrencyLimit(2);
+		final ManualExecutor executor = new ManualExecutor();
+		final List<CompletableFuture<Integer>> futures = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			final int value = i;
+			futures.add(sql.supplyAsync(() -> value, executor));
+		}
+		assertEquals(2, executor.tasks.size());
+		executor.runNext();
+		assertEquals(0, (int) futures.get(0).get());
+		assertEquals(2, executor.tasks.size());
+		// a cancelled operation is not run, and gives its permit back
+		futures.get(1).cancel(false);
+		executor.runNext();
+		assertEquals(2, executor.tasks.size());
+		// raising the limit submits the waiting operations right away
+		sql.setAsyncConcurrencyLimit(0);
+		assertEquals(3, executor.tasks.size());
+		while (!executor.tasks.isEmpty()) {
+			executor.runNext();
+		}
+		for (int i = 2; i < 5; i++) {
+			assertEquals(i, (int) futures.get(i).get());
+		}
+	}
+
+	/**
+	 * The limit of a builder does not apply to the operations of another builder.
+	 */
+	@Test
+	public void testLimitPerBuilder() {
+		sql.setAsyncConcurrencyLimit(1);
+		final ManualExecutor executor = new ManualExecutor();
+		sql.supplyAsync(() -> 1, executor);
+		sql.supplyAsync(() -> 2, executor);
+		final SqlBuilder other = new SqlBuilder(null, SqlDialect.STANDARD, false);
+		other.setAsyncConcurrencyLimit(1);
+		other.supplyAsync(() -> 3, executor);
+		assertEquals(2, executor.tasks.size());
+	}
+}
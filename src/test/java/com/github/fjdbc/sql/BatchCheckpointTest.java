@@ -0,0 +1,95 @@
+package com.github.fjdbc.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.github.fjdbc.sql.SqlBuilder.SqlRaw;
+
+public class BatchCheckpointTest {
+	private final MockDatabase db = new MockDatabase();
+	private final Path dir;
+	private final Path file;
+
+	public BatchCheckpointTest() throws IOException {
+		dir = Files.createTempDirectory("fjdbc-sql");
+		file = dir.resolve("checkpoint");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+		Files.delete(dir);
+	}
+
+	@Test
+	public void testWriteRead() {
+		assertNull(BatchCheckpoint.read(file));
+		new BatchCheckpoint(12_000_000_000L, 42).write(file);
+		final BatchCheckpoint checkpoint = BatchCheckpoint.read(file);
+		assertEquals(12_000_000_000L, checkpoint.getOffset());
+		assertEquals(42, checkpoint.getRowCount());
+		new BatchCheckpoint(1, 2).write(file);
+		assertEquals(1, BatchCheckpoint.read(file).getOffset());
+	}
+
+	/**
+	 * A statement sent to the error handler is part of the checkpoint, so that it is not executed again on resume.
+	 */
+	@Test
+	public void testResumeAfterErrors() {
+		final List<Object> failed = new ArrayList<>();
+		// statement 2 cannot be bound; the stream crashes once statements 1 to 4 are committed
+		final Stream<SqlRaw> crashing = IntStream.rangeClosed(1, 10).mapToObj(i -> {
+			if (i == 5) throw new IllegalStateException("crash");
+			if (i != 2) return BatchStatementOperationTest.row(i);
+			return new SqlRaw("insert into t values (?)", (ps, index) -> {
+				throw new SQLException("Cannot bind");
+			});
+		});
+		final BatchStatementOperation<SqlRaw> first = new BatchStatementOperation<>(db.provider(), crashing, 1, 4);
+		first.setCheckpointFile(file);
+		first.setErrorHandler((e, st) -> failed.add(st));
+		assertThrows(IllegalStateException.class, first::executeAndCommit);
+		assertEquals(1, failed.size());
+		// statements 1 to 4 were consumed; statement 2 failed
+		assertEquals(4, BatchCheckpoint.read(file).getOffset());
+		assertEquals(3, BatchCheckpoint.read(file).getRowCount());
+
+		final BatchStatementOperation<SqlRaw> second = new BatchStatementOperation<>(db.provider(),
+				BatchStatementOperationTest.rows(10), 1, 4);
+		second.setCheckpointFile(file);
+		assertEquals(6, second.executeAndCommit());
+		assertEquals(Arrays.asList(1, 3, 4, 5, 6, 7, 8, 9, 10), db.committedKeys());
+		assertFalse(Files.exists(file));
+	}
+
+	/**
+	 * The commit boundaries of a resumed execution are the same as if it had not been interrupted.
+	 */
+	@Test
+	public void testCommitBoundariesAfterResume() {
+		new BatchCheckpoint(5, 5).write(file);
+		final BatchStatementOperation<SqlRaw> op = new BatchStatementOperation<>(db.provider(),
+				BatchStatementOperationTest.rows(10), -1, 4);
+		op.setCheckpointFile(file);
+		op.executeAndCommit();
+		assertEquals(Arrays.asList("executeBatch 3", "commit", "executeBatch 2", "commit"),
+				db.events("executeBatch", "commit"));
+		assertEquals(BatchStatementOperationTest.keys(6, 10), db.committedKeys());
+	}
+}
@@ -0,0 +1,285 @@
+package com.github.fjdbc.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import com.github.fjdbc.RuntimeSQLException;
+import com.github.fjdbc.sql.SqlBuilder.SqlRaw;
+
+/**
+ * Tests the execution of batch statements on a {@link MockDatabase}.
+ */
+public class BatchStatementOperationTest {
+	private final MockDatabase db = new MockDatabase();
+
+	/**
+	 * A statement inserting a single value.
+	 */
+	static SqlRaw row(int value) {
+		return new SqlRaw("insert into t values (?)", (ps, index) -> ps.setInt(index.next(), value));
+	}
+
+	static Stream<SqlRaw> rows(int count) {
+		return IntStream.rangeClosed(1, count).mapToObj(BatchStatementOperationTest::row);
+	}
+
+	static List<Object> keys(int from, int to) {
+		final List<Object> res = new ArrayList<>();
+		for (int i = from; i <= to; i++) {
+			res.add(i);
+		}
+		return res;
+	}
+
+	@Test
+	public void testFlushAndCommitCounts() {
+		final BatchStatementOperation<SqlRaw> op = new BatchStatementOperation<>(db.provider(), rows(10), 3, 4);
+		assertEquals(10, op.executeAndCommit());
+		// a commit executes the pending rows first
+		assertEquals(Arrays.asList("executeBatch 3", "executeBatch 1", "executeBatch 3", "executeBatch 1",
+				"executeBatch 2"), db.events("executeBatch"));
+		assertEquals(3, db.events("commit").size());
+		assertEquals(keys(1, 10), db.committedKeys());
+		assertEquals(0, db.borrowedConnections.get());
+		assertEquals(0, db.openCursors.get());
+	}
+
+	@Test
+	public void testEndOfStreamFlush() {
+		final BatchStatementOperation<SqlRaw> op = new BatchStatementOperation<>(db.provider(), rows(5), -1, -1);
+		assertEquals(5, op.executeAndCommit());
+		assertEquals(Arrays.asList("executeBatch 5"), db.events("executeBatch"));
+	}
+
+	/**
+	 * A stream of statements of different shapes, e.g {@code delete A; insert A; delete A}.
+	 */
+	static Stream<SqlRaw> mixedRows() {
+		return Stream.of(new SqlRaw("delete from t where k = ?", (ps, index) -> ps.setInt(index.next(), 1)), row(1),
+				new SqlRaw("delete from t where k = ?", (ps, index) -> ps.setInt(index.next(), 1)));
+	}
+
+	@Test
+	public void testGroupByShapeStrictOrder() {
+		final BatchStatementOperation<SqlRaw> op = new BatchStatementOperation<>(db.provider(), mixedRows(), -1, -1);
+		op.groupByShape(1);
+		op.executeAndCommit();
+		assertEquals(Arrays.asList("prepare delete from t where k = ?", "prepare insert into t values (?)",
+				"prepare delete from t where k = ?"), db.events("prepare"));
+		assertEquals(Arrays.asList("executeBatch 1", "executeBatch 1", "executeBatch 1"), db.events("executeBatch"));
+	}
+
+	/**
+	 * With more than one open statement, statements of the same shape are batched together, across other shapes.
+	 */
+	@Test
+	public void testGroupByShapeReorders() {
+		final BatchStatementOperation<SqlRaw> op = new BatchStatementOperation<>(db.provider(), mixedRows(), -1, -1);
+		op.groupByShape(2);
+		op.executeAndCommit();
+		assertEquals(Arrays.asList("prepare delete from t where k = ?", "prepare insert into t values (?)"),
+				db.events("prepare"));
+		assertEquals(Arrays.asList("executeBatch 2", "executeBatch 1"), db.events("executeBatch"));
+	}
+
+	@Test
+	public void testFlushPolicies() {
+		final BatchStatementOperation<SqlRaw> op = new BatchStatementOperation<>(db.provider(), rows(10), -1, -1);
+		op.setRowWeigher(st -> 100);
+		op.setFlushPolicy(BatchFlushPolicy.anyOf(BatchFlushPolicy.everyNBytes(400),
+				BatchFlushPolicy.every(1, TimeUnit.HOURS)));
+		op.executeAndCommit();
+		assertEquals(Arrays.asList("executeBatch 4", "executeBatch 4", "executeBatch 2"), db.events("executeBatch"));
+	}
+
+	/**
+	 * The before and after execution callbacks are called once per {@code PreparedStatement}, not once per row.
+	 */
+	@Test
+	public void testExecutionCallbacks() {
+		final List<String> calls = new ArrayList<>();
+		final BatchStatementOperation<SqlRaw> op = new BatchStatementOperation<>(db.provider(), rows(10), 3, -1);
+		op.doBeforeExecution(st -> calls.add("before"));
+		op.doAfterExecution(st -> calls.add("after"));
+		op.executeAndCommit();
+		assertEquals(Arrays.asList("before", "after"), calls);
+	}
+
+	@Test
+	public void testFailureIsolation() {
+		db.failingRow = row -> row.get(0).equals(5) || row.get(0).equals(6);
+		final List<Object> failed = new ArrayList<>();
+		final BatchStatementOperation<SqlRaw> op = new BatchStatementOperation<>(db.provider(), rows(10), -1, -1);
+		op.setFailureIsolation(8);
+		op.setErrorHandler((e, st) -> failed.add(st));
+		final BatchMetrics metrics = new BatchMetrics();
+		op.setListener(metrics);
+		op.executeAndCommit();
+
+		final List<Object> expected = keys(1, 10);
+		expected.removeAll(Arrays.asList(5, 6));
+		assertEquals(expected, db.committedKeys());
+		assertEquals(2, failed.size());
+		assertEquals(2, metrics.getErrorCount());
+	}
+
+	@Test
+	public void testErrorWithoutIsolation() {
+		db.failingRow = row -> row.get(0).equals(5);
+		final List<SQLException> errors = new ArrayList<>();
+		final BatchStatementOperation<SqlRaw> op = new BatchStatementOperation<>(db.provider(), rows(10), 5, -1);
+		op.setErrorHandler((e, st) -> errors.add(e));
+		op.executeAndCommit();
+		// the whole failing batch is lost
+		assertEquals(keys(6, 10), db.committedKeys());
+		assertEquals(1, errors.size());
+	}
+
+	/**
+	 * After a failure of the consumer, the input stream is closed only once the producer has stopped iterating it.
+	 */
+	@Test
+	public void testPipelineFailureJoinsProducer() {
+		db.failingRow = row -> row.get(0).equals(1);
+		final AtomicBoolean producing = new AtomicBoolean();
+		final AtomicBoolean closedWhileProducing = new AtomicBoolean();
+		// the first statement fails; building the following ones is slow, and not interruptible
+		final Stream<SqlRaw> input = IntStream.rangeClosed(1, 10).peek(i -> {
+			if (i == 1) return;
+			producing.set(true);
+			busyWait(50);
+			producing.set(false);
+		}).mapToObj(BatchStatementOperationTest::row).onClose(() -> closedWhileProducing.set(producing.get()));
+		final BatchStatementOperation<SqlRaw> op = new BatchStatementOperation<>(db.provider(), input, 1, -1);
+		op.setPipelining(1, 1000);
+		assertThrows(RuntimeSQLException.class, op::executeAndCommit);
+		assertFalse(closedWhileProducing.get());
+		assertFalse(producing.get());
+		assertEquals(0, db.borrowedConnections.get());
+	}
+
+	/**
+	 * A failure of the consumer while the queue of chunks is full, and while the producer is building a statement,
+	 * does not leave the producer blocked.
+	 */
+	@Test(timeout = 10_000)
+	public void testPipelineFailureWithFullQueue() {
+		db.failingRow = row -> row.get(0).equals(1);
+		// the first statement fails after a slow bind; statement 2 fills the queue; statement 3 is being built, and
+		// not interruptible, when the consumer fails
+		final Stream<SqlRaw> input = IntStream.rangeClosed(1, 3).peek(i -> {
+			if (i == 3) busyWait(500);
+		}).mapToObj(i -> {
+			if (i != 1) return row(i);
+			return new SqlRaw("insert into t values (?)", (ps, index) -> {
+				busyWait(200);
+				ps.setInt(index.next(), 1);
+			});
+		});
+		final BatchStatementOperation<SqlRaw> op = new BatchStatementOperation<>(db.provider(), input, 1, -1);
+		op.setPipelining(1, 1);
+		assertThrows(RuntimeSQLException.class, op::executeAndCommit);
+		assertEquals(0, db.borrowedConnections.get());
+	}
+
+	private static void busyWait(long millis) {
+		final long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+		while (System.nanoTime() < end) {
+			// busy wait
+		}
+	}
+
+	@Test
+	public void testMetrics() {
+		final BatchMetrics metrics = new BatchMetrics();
+		final BatchStatementOperation<SqlRaw> op = new BatchStatementOperation<>(db.provider(), rows(10), 4, 5);
+		op.setListener(metrics);
+		op.executeAndCommit();
+		assertEquals(10, metrics.getRowsBound());
+		assertEquals(10, metrics.getRowsExecuted());
+		// 4, 1 (commit), 4, 1 (commit)
+		assertEquals(4, metrics.getBatchCount());
+		// 2 intermediate commits, and the final one
+		assertEquals(3, metrics.getCommitCount());
+	}
+
+	@Test
+	public void testParallel() {
+		final BatchStatementOperation<SqlRaw> op = new BatchStatementOperation<>(db.provider(), rows(100), 7, 20);
+		op.setParallelism(3, 5);
+		final ParallelBatchResult result = op.executeParallelAndCommit();
+		assertEquals(100, result.getRowCount());
+		final List<Object> committed = db.committedKeys();
+		committed.sort(null);
+		assertEquals(keys(1, 100), committed);
+		assertEquals(0, db.borrowedConnections.get());
+	}
+
+	@Test
+	public void testParallelCancel() {
+		final AtomicInteger cancelledCalls = new AtomicInteger();
+		final BatchStatementOperation<SqlRaw> op = new BatchStatementOperation<>(db.provider(), rows(100), 7, -1);
+		op.setParallelism(3, 5);
+		op.setListener(new BatchListener() {
+			@Override
+			public void cancelled() {
+				cancelledCalls.incrementAndGet();
+			}
+		});
+		op.cancel();
+		op.executeParallelAndCommit();
+		assertEquals(1, cancelledCalls.get());
+		assertEquals(0, db.committedRows.size());
+		assertEquals(0, db.borrowedConnections.get());
+	}
+
+	/**
+	 * An interrupted execution still stops its workers and releases their connections.
+	 */
+	@Test
+	public void testParallelInterrupted() {
+		final BatchStatementOperation<SqlRaw> op = new BatchStatementOperation<>(db.provider(), rows(100), 7, -1);
+		op.setParallelism(3, 1);
+		Thread.currentThread().interrupt();
+		try {
+			assertThrows(CancellationException.class, op::executeParallelAndCommit);
+			assertTrue(Thread.currentThread().isInterrupted());
+		} finally {
+			Thread.interrupted();
+		}
+		assertEquals(0, db.borrowedConnections.get());
+		assertEquals(0, db.committedRows.size());
+	}
+
+	@Test
+	public void testLatencyHistogram() {
+		final BatchMetrics.LatencyHistogram histogram = new BatchMetrics.LatencyHistogram();
+		assertEquals(0, histogram.getPercentile(0.5, TimeUnit.MICROSECONDS));
+		for (int i = 0; i < 99; i++) {
+			histogram.record(TimeUnit.MICROSECONDS.toNanos(1));
+		}
+		histogram.record(TimeUnit.MICROSECONDS.toNanos(1000));
+		assertEquals(100, histogram.getCount());
+		// upper bounds of the buckets [1, 2) and [512, 1024)
+		assertEquals(2, histogram.getPercentile(0.5, TimeUnit.MICROSECONDS));
+		assertEquals(2, histogram.getPercentile(0.99, TimeUnit.MICROSECONDS));
+		assertEquals(1024, histogram.getPercentile(1, TimeUnit.MICROSECONDS));
+		assertEquals(99, histogram.getBuckets()[1]);
+		assertEquals(1, histogram.getBuckets()[10]);
+	}
+}
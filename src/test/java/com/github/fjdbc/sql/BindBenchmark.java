@@ -0,0 +1,126 @@
+package com.github.fjdbc.sql;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.PreparedStatement;
+import java.sql.Ref;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of binding a single parameter: chain of type comparisons (as in previous versions) vs. binder resolved once.
+ * <p>
+ * The prepared statement is a no-op proxy, whose overhead is the same for both benchmarks. Run with
+ * {@code java -cp <test classpath> org.openjdk.jmh.Main BindBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class BindBenchmark {
+	/**
+	 * From the first to the last type of the comparison chain.
+	 */
+	@Param({ "String", "Long", "Timestamp", "URL" })
+	public String typeName;
+
+	private PreparedStatement ps;
+	private Object value;
+	private Class<Object> type;
+	private JdbcBinder binder;
+
+	@Setup
+	@SuppressWarnings("unchecked")
+	public void setup() throws Exception {
+		ps = (PreparedStatement) Proxy.newProxyInstance(BindBenchmark.class.getClassLoader(),
+				new Class<?>[] { PreparedStatement.class }, (proxy, method, args) -> null);
+		switch (typeName) {
+		case "String":
+			value = "KING";
+			break;
+		case "Long":
+			value = 7839L;
+			break;
+		case "Timestamp":
+			value = new Timestamp(0);
+			break;
+		case "URL":
+			value = new URL("http://localhost");
+			break;
+		default:
+			throw new IllegalArgumentException(typeName);
+		}
+		type = (Class<Object>) value.getClass();
+		binder = JdbcBinder.of(type);
+	}
+
+	@Benchmark
+	public void equalsChain() throws SQLException {
+		setAnyObject_equalsChain(ps, 1, value, type);
+	}
+
+	@Benchmark
+	public void resolvedBinder() throws SQLException {
+		binder.set(ps, 1, value);
+	}
+
+	/**
+	 * The implementation of {@code SqlBuilder.setAnyObject} before binders were introduced.
+	 */
+	private static <T> void setAnyObject_equalsChain(PreparedStatement ps, int columnIndex, T o, Class<T> type)
+			throws SQLException {
+		if (type.equals(String.class)) {
+			ps.setString(columnIndex, (String) o);
+		} else if (type.equals(BigDecimal.class)) {
+			ps.setBigDecimal(columnIndex, (BigDecimal) o);
+		} else if (type.equals(Boolean.class)) {
+			ps.setBoolean(columnIndex, (Boolean) o);
+		} else if (type.equals(Integer.class)) {
+			ps.setInt(columnIndex, (Integer) o);
+		} else if (type.equals(Long.class)) {
+			ps.setLong(columnIndex, (Long) o);
+		} else if (type.equals(Float.class)) {
+			ps.setFloat(columnIndex, (Float) o);
+		} else if (type.equals(Double.class)) {
+			ps.setDouble(columnIndex, (Double) o);
+		} else if (type.equals(byte[].class)) {
+			ps.setBytes(columnIndex, (byte[]) o);
+		} else if (type.equals(java.sql.Date.class)) {
+			ps.setDate(columnIndex, (java.sql.Date) o);
+		} else if (type.equals(Time.class)) {
+			ps.setTime(columnIndex, (Time) o);
+		} else if (type.equals(Timestamp.class)) {
+			ps.setTimestamp(columnIndex, (Timestamp) o);
+		} else if (type.equals(Clob.class)) {
+			ps.setClob(columnIndex, (Clob) o);
+		} else if (type.equals(Blob.class)) {
+			ps.setBlob(columnIndex, (Blob) o);
+		} else if (type.equals(Array.class)) {
+			ps.setArray(columnIndex, (Array) o);
+		} else if (type.equals(Ref.class)) {
+			ps.setRef(columnIndex, (Ref) o);
+		} else if (type.equals(URL.class)) {
+			ps.setURL(columnIndex, (URL) o);
+		}
+	}
+}
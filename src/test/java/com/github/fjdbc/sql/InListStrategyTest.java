@@ -0,0 +1,104 @@
+package com.github.fjdbc.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.junit.Test;
+
+import com.github.fjdbc.IntSequence;
+import com.github.fjdbc.sql.SqlBuilder.SqlSelectBuilder;
+
+/**
+ * Tests the {@link InListStrategy#TEMP_TABLE} and {@link InListStrategy#VALUES} strategies on a {@link MockDatabase}.
+ */
+public class InListStrategyTest {
+	private final MockDatabase db = new MockDatabase();
+
+	private static SqlSelectBuilder select(SqlBuilder sql, long... values) {
+		return sql.select("ename").from("emp").where("empno").in(values);
+	}
+
+	private static void bind(SqlSelectBuilder query, Connection cnx) throws SQLException {
+		final PreparedStatement ps = cnx.prepareStatement(query.getSql());
+		query.bind(ps, new IntSequence(1));
+	}
+
+	@Test
+	public void testTempTableCreatedOncePerConnection() throws SQLException {
+		final SqlBuilder sql = new SqlBuilder(null, SqlDialect.POSTGRESQL, false);
+		sql.setInListStrategy(InListStrategy.TEMP_TABLE);
+		final Connection cnx = db.newConnection();
+		bind(select(sql, 1, 2, 3), cnx);
+		bind(select(sql, 4, 5), cnx);
+		assertEquals(1, db.events("execute create").size());
+		assertEquals(Arrays.asList("executeBatch 3", "executeBatch 2"), db.events("executeBatch"));
+
+		// another connection creates its own table
+		bind(select(sql, 6), db.newConnection());
+		assertEquals(2, db.events("execute create").size());
+
+		// the table must be created again once dropped
+		sql.dropInListTempTables(cnx);
+		bind(select(sql, 7), cnx);
+		assertEquals(3, db.events("execute create").size());
+	}
+
+	/**
+	 * With auto-commit, the rows of the temporary table would be deleted before the query is executed.
+	 */
+	@Test
+	public void testTempTableAutoCommit() {
+		db.autoCommit = true;
+		final SqlBuilder sql = new SqlBuilder(null, SqlDialect.POSTGRESQL, false);
+		sql.setInListStrategy(InListStrategy.TEMP_TABLE);
+		assertThrows(IllegalStateException.class, () -> bind(select(sql, 1, 2, 3), db.newConnection()));
+		assertEquals(0, db.events("execute create").size());
+	}
+
+	/**
+	 * Arrays of primitives are bound to the placeholders of the VALUES strategy, and to the rows of the temporary
+	 * table.
+	 */
+	@Test
+	public void testPrimitiveValues() throws SQLException {
+		final SqlBuilder sql = new SqlBuilder(null, SqlDialect.POSTGRESQL, false);
+		final Connection cnx = db.newConnection();
+		sql.setInListStrategy(InListStrategy.VALUES);
+		final SqlSelectBuilder query = sql.select("ename").from("emp").where("empno").in(new int[] { 7839, 7698 });
+		final PreparedStatement ps = cnx.prepareStatement(query.getSql());
+		query.bind(ps, new IntSequence(1));
+		// record the bound values as a row
+		ps.executeUpdate();
+		cnx.commit();
+		assertEquals(Arrays.asList(Arrays.asList(7839, 7698)), db.committedRows);
+
+		db.committedRows.clear();
+		sql.setInListStrategy(InListStrategy.TEMP_TABLE);
+		bind(select(sql, 1, 2, 3), cnx);
+		cnx.commit();
+		// skip the row of the delete statement, which has the id only
+		assertEquals(Arrays.asList(1L, 2L, 3L), db.committedRows.stream().filter(row -> row.size() == 2)
+				.map(row -> row.get(1)).collect(Collectors.toList()));
+	}
+
+	/**
+	 * The VALUES strategy (and TEMP_TABLE, which falls back to it on this dialect) uses one placeholder per value.
+	 */
+	@Test
+	public void testValuesBindLimit() {
+		final SqlBuilder sql = new SqlBuilder(null, SqlDialect.SQLSERVER, false);
+		final long[] values = LongStream.rangeClosed(1, 2101).toArray();
+		for (final InListStrategy strategy : Arrays.asList(InListStrategy.VALUES, InListStrategy.TEMP_TABLE)) {
+			sql.setInListStrategy(strategy);
+			assertThrows(IllegalArgumentException.class, () -> select(sql, values));
+			select(sql, LongStream.rangeClosed(1, 2100).toArray());
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package com.github.fjdbc.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.github.fjdbc.Fjdbc;
+import com.github.fjdbc.query.SingleRowExtractor;
+
+/**
+ * Tests the keyset pagination of {@link KeysetPageIterator} on a {@link MockDatabase} whose table has the keys 1 to
+ * {@code rowCount}.
+ */
+public class KeysetPageIteratorTest {
+	private static final int PAGE_SIZE = 3;
+	private final MockDatabase db = new MockDatabase();
+	private final SqlBuilder sql = new SqlBuilder(new Fjdbc(db.provider()), SqlDialect.STANDARD, false);
+	private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Return the rows following the last key of the previous page (the first parameter, if any), up to the page size
+	 * (the last parameter).
+	 */
+	private void setRowCount(int rowCount) {
+		db.queryRows = (_sql, parameters) -> {
+			final int lastKey = parameters.size() == 2 ? ((Number) parameters.get(0)).intValue() : 0;
+			final int pageSize = ((Number) parameters.get(parameters.size() - 1)).intValue();
+			return IntStream.rangeClosed(lastKey + 1, Math.min(rowCount, lastKey + pageSize)).boxed()
+					.collect(Collectors.toList());
+		};
+	}
+
+	private KeysetPageIterator<Integer> iterator() {
+		final SingleRowExtractor<Integer> extractor = rs -> rs.getInt(1);
+		return new KeysetPageIterator<>(() -> sql.select("id").from("t"), Arrays.asList("id"), PAGE_SIZE, extractor,
+				Collections::singletonList, executor);
+	}
+
+	private void assertReleased() {
+		assertEquals(0, db.borrowedConnections.get());
+		assertEquals(0, db.openCursors.get());
+	}
+
+	/**
+	 * The last page is full: an additional query tells that there are no more rows.
+	 */
+	@Test
+	public void testPageBoundary() {
+		setRowCount(6);
+		final KeysetPageIterator<Integer> pages = iterator();
+		assertEquals(Arrays.asList(1, 2, 3), pages.next());
+		assertEquals(Arrays.asList(4, 5, 6), pages.next());
+		assertFalse(pages.hasNext());
+		assertEquals(3, db.events("executeQuery").size());
+		assertReleased();
+	}
+
+	/**
+	 * The last page is not full: no more queries are executed.
+	 */
+	@Test
+	public void testLastPage() {
+		setRowCount(7);
+		final KeysetPageIterator<Integer> pages = iterator();
+		assertEquals(Arrays.asList(1, 2, 3), pages.next());
+		assertEquals(Arrays.asList(4, 5, 6), pages.next());
+		assertEquals(Arrays.asList(7), pages.next());
+		assertFalse(pages.hasNext());
+		assertThrows(NoSuchElementException.class, pages::next);
+		assertEquals(3, db.events("executeQuery").size());
+		assertReleased();
+	}
+
+	@Test
+	public void testEmpty() {
+		setRowCount(0);
+		final KeysetPageIterator<Integer> pages = iterator();
+		assertFalse(pages.hasNext());
+		assertThrows(NoSuchElementException.class, pages::next);
+		assertEquals(1, db.events("executeQuery").size());
+	}
+
+	/**
+	 * The failure of the prefetched page is thrown when the caller moves to that page.
+	 */
+	@Test
+	public void testPrefetchFailure() {
+		final IllegalStateException failure = new IllegalStateException();
+		db.queryRows = (_sql, parameters) -> {
+			if (parameters.size() == 2) throw failure;
+			return Arrays.asList(1, 2, 3);
+		};
+		final KeysetPageIterator<Integer> pages = iterator();
+		assertEquals(Arrays.asList(1, 2, 3), pages.next());
+		assertSame(failure, assertThrows(IllegalStateException.class, pages::hasNext));
+		// the iterator is over after a failure
+		assertFalse(pages.hasNext());
+		assertReleased();
+	}
+
+	/**
+	 * Closing the iterator discards the prefetched page.
+	 */
+	@Test
+	public void testClose() {
+		setRowCount(100);
+		final KeysetPageIterator<Integer> pages = iterator();
+		assertTrue(pages.hasNext());
+		pages.close();
+		assertFalse(pages.hasNext());
+	}
+}
@@ -0,0 +1,303 @@
+package com.github.fjdbc.sql;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.github.fjdbc.ConnectionProvider;
+
+/**
+ * An in-memory stand-in for a database, made of JDBC {@link Proxy} objects. SQL is not interpreted: the calls made by
+ * the code under test are recorded as events, and the rows executed by each connection are kept until they are
+ * committed or rolled back.
+ * <p>
+ * A row is the list of the values bound to a statement, by parameter index.
+ */
+class MockDatabase {
+	/**
+	 * The committed rows, in order of execution.
+	 */
+	final List<List<Object>> committedRows = Collections.synchronizedList(new ArrayList<>());
+	/**
+	 * The calls made on the connections and statements, e.g {@code "executeBatch 3"} or {@code "commit"}.
+	 */
+	final List<String> events = Collections.synchronizedList(new ArrayList<>());
+	/**
+	 * {@code executeBatch} (and {@code executeUpdate}) fail if one of the rows matches this predicate. The rows of the
+	 * failing batch are discarded.
+	 */
+	volatile Predicate<List<Object>> failingRow = row -> false;
+	/**
+	 * The number of rows returned by queries. Row {@code i} (starting at 1) has the value {@code i} in all columns.
+	 */
+	volatile int queryRowCount;
+	/**
+	 * The values of the rows returned by a query, given its SQL and the values bound to it. Each row has its value in
+	 * all columns. By default, the values 1 to {@link #queryRowCount}.
+	 */
+	volatile BiFunction<String, List<Object>, List<Integer>> queryRows = (sql, parameters) -> IntStream
+			.rangeClosed(1, queryRowCount).boxed().collect(Collectors.toList());
+	/**
+	 * The auto-commit mode of new connections.
+	 */
+	volatile boolean autoCommit;
+	/**
+	 * The number of connections borrowed from the provider and not given back yet.
+	 */
+	final AtomicInteger borrowedConnections = new AtomicInteger();
+	/**
+	 * The number of statements and result sets not closed yet.
+	 */
+	final AtomicInteger openCursors = new AtomicInteger();
+
+	/**
+	 * A connection provider borrowing a new connection each time.
+	 */
+	ConnectionProvider provider() {
+		return new ConnectionProvider() {
+			@Override
+			public Connection borrow() throws SQLException {
+				borrowedConnections.incrementAndGet();
+				return newConnection();
+			}
+
+			@Override
+			public void giveBack(Connection cnx) {
+				if (cnx == null) return;
+				borrowedConnections.decrementAndGet();
+				events.add("giveBack");
+			}
+
+			@Override
+			public void commit(Connection cnx) throws SQLException {
+				cnx.commit();
+			}
+
+			@Override
+			public void rollback(Connection cnx) {
+				if (cnx == null) return;
+				try {
+					cnx.rollback();
+				} catch (final SQLException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+	}
+
+	Connection newConnection() {
+		return new MockConnection().proxy;
+	}
+
+	/**
+	 * The events starting with one of the specified prefixes, in order.
+	 */
+	List<String> events(String... prefixes) {
+		synchronized (events) {
+			return events.stream().filter(e -> Arrays.stream(prefixes).anyMatch(e::startsWith))
+					.collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * The first value of each committed row.
+	 */
+	List<Object> committedKeys() {
+		synchronized (committedRows) {
+			return committedRows.stream().map(row -> row.get(0)).collect(Collectors.toList());
+		}
+	}
+
+	private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+		return type.cast(Proxy.newProxyInstance(MockDatabase.class.getClassLoader(), new Class<?>[] { type }, handler));
+	}
+
+	/**
+	 * The default value of a method that is not emulated.
+	 */
+	private static Object defaultValue(Method method) {
+		final Class<?> type = method.getReturnType();
+		if (type == boolean.class) return false;
+		if (type == int.class) return 0;
+		if (type == long.class) return 0L;
+		if (type == double.class) return 0d;
+		if (type == float.class) return 0f;
+		if (type == short.class) return (short) 0;
+		if (type == byte.class) return (byte) 0;
+		return null;
+	}
+
+	private class MockConnection {
+		private final Connection proxy;
+		private boolean autoCommit = MockDatabase.this.autoCommit;
+		/**
+		 * The rows executed by this connection, and not committed yet.
+		 */
+		private final List<List<Object>> uncommittedRows = new ArrayList<>();
+		private final Map<Savepoint, Integer> savepoints = new IdentityHashMap<>();
+
+		public MockConnection() {
+			proxy = proxy(Connection.class, (p, method, args) -> {
+				switch (method.getName()) {
+				case "prepareStatement":
+					events.add("prepare " + args[0]);
+					return new MockStatement(this, (String) args[0]).proxy;
+				case "createStatement":
+					return new MockStatement(this, null).proxy;
+				case "getAutoCommit":
+					return autoCommit;
+				case "setAutoCommit":
+					events.add("setAutoCommit " + args[0]);
+					if ((Boolean) args[0] && !autoCommit) commit();
+					autoCommit = (Boolean) args[0];
+					return null;
+				case "commit":
+					events.add("commit");
+					commit();
+					return null;
+				case "rollback":
+					if (args == null) {
+						events.add("rollback");
+						uncommittedRows.clear();
+					} else {
+						events.add("rollbackToSavepoint");
+						final int size = savepoints.get(args[0]);
+						uncommittedRows.subList(size, uncommittedRows.size()).clear();
+					}
+					return null;
+				case "setSavepoint":
+					final Savepoint savepoint = proxy(Savepoint.class, (sp, m, a) -> defaultValue(m));
+					savepoints.put(savepoint, uncommittedRows.size());
+					return savepoint;
+				case "releaseSavepoint":
+					savepoints.remove(args[0]);
+					return null;
+				default:
+					return defaultValue(method);
+				}
+			});
+		}
+
+		private void commit() {
+			committedRows.addAll(uncommittedRows);
+			uncommittedRows.clear();
+		}
+
+		private void executed(List<List<Object>> rows) {
+			if (autoCommit) {
+				committedRows.addAll(rows);
+			} else {
+				uncommittedRows.addAll(rows);
+			}
+		}
+	}
+
+	private class MockStatement {
+		private final PreparedStatement proxy;
+		private final Map<Integer, Object> parameters = new TreeMap<>();
+		private final List<List<Object>> batch = new ArrayList<>();
+
+		public MockStatement(MockConnection cnx, String sql) {
+			openCursors.incrementAndGet();
+			proxy = proxy(PreparedStatement.class, (p, method, args) -> {
+				final String name = method.getName();
+				if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer
+						&& !name.equals("setFetchSize") && !name.equals("setMaxRows")
+						&& !name.equals("setQueryTimeout")) {
+					parameters.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+					return null;
+				}
+				switch (name) {
+				case "setFetchSize":
+				case "setMaxRows":
+				case "setQueryTimeout":
+					events.add(name + " " + args[0]);
+					return null;
+				case "addBatch":
+					batch.add(new ArrayList<>(parameters.values()));
+					parameters.clear();
+					return null;
+				case "clearBatch":
+					batch.clear();
+					return null;
+				case "executeBatch":
+					events.add("executeBatch " + batch.size());
+					final List<List<Object>> rows = new ArrayList<>(batch);
+					batch.clear();
+					execute(cnx, rows);
+					final int[] res = new int[rows.size()];
+					Arrays.fill(res, 1);
+					return res;
+				case "executeUpdate":
+					events.add("executeUpdate");
+					execute(cnx, Collections.singletonList(new ArrayList<>(parameters.values())));
+					return 1;
+				case "execute":
+					events.add("execute " + (args == null ? sql : args[0]));
+					return false;
+				case "executeQuery":
+					events.add("executeQuery");
+					return newResultSet(queryRows.apply(sql, new ArrayList<>(parameters.values())));
+				case "getConnection":
+					return cnx.proxy;
+				case "close":
+					openCursors.decrementAndGet();
+					return null;
+				default:
+					return defaultValue(method);
+				}
+			});
+		}
+
+		private void execute(MockConnection cnx, List<List<Object>> rows) throws SQLException {
+			for (final List<Object> row : rows) {
+				if (failingRow.test(row)) throw new BatchUpdateException("Failing row: " + row, new int[0]);
+			}
+			cnx.executed(rows);
+		}
+
+		private ResultSet newResultSet(List<Integer> rows) {
+			openCursors.incrementAndGet();
+			final int[] row = { 0 };
+			return proxy(ResultSet.class, (p, method, args) -> {
+				final Integer value = row[0] == 0 || row[0] > rows.size() ? null : rows.get(row[0] - 1);
+				switch (method.getName()) {
+				case "next":
+					return ++row[0] <= rows.size();
+				case "getInt":
+					return value == null ? 0 : value;
+				case "getLong":
+					return value == null ? 0L : (long) value;
+				case "getObject":
+					return value;
+				case "getString":
+					return value == null ? null : String.valueOf(value);
+				case "close":
+					openCursors.decrementAndGet();
+					events.add("closeResultSet");
+					return null;
+				default:
+					return defaultValue(method);
+				}
+			});
+		}
+	}
+}
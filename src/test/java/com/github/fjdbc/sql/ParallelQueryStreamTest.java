@@ -0,0 +1,123 @@
+package com.github.fjdbc.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.github.fjdbc.Fjdbc;
+import com.github.fjdbc.query.SingleRowExtractor;
+
+/**
+ * Tests the chunks of {@link SqlBuilder#chunkedLookup}, merged by {@link ParallelQueryStream}, on a
+ * {@link MockDatabase}. The query of a chunk returns the keys of the chunk.
+ */
+public class ParallelQueryStreamTest {
+	private final MockDatabase db = new MockDatabase();
+	private final SqlBuilder sql = new SqlBuilder(new Fjdbc(db.provider()), SqlDialect.STANDARD, false);
+	private ExecutorService executor = Executors.newFixedThreadPool(2);
+	/**
+	 * The number of chunks whose query has been built.
+	 */
+	private final AtomicInteger openedChunks = new AtomicInteger();
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private Stream<Integer> lookup(List<Integer> keys, int chunkSize) {
+		final SingleRowExtractor<Integer> extractor = rs -> rs.getInt(1);
+		return sql.chunkedLookup(keys, chunkSize, chunk -> {
+			openedChunks.incrementAndGet();
+			return sql.select("k").from("t").where("k").in_Integer(chunk);
+		}, extractor, executor);
+	}
+
+	private static List<Integer> keys(int n) {
+		return IntStream.rangeClosed(1, n).boxed().collect(Collectors.toList());
+	}
+
+	/**
+	 * The rows returned by the query of a chunk: the values bound to the query.
+	 */
+	private static List<Integer> chunkKeys(List<Object> parameters) {
+		return parameters.stream().map(k -> (Integer) k).collect(Collectors.toList());
+	}
+
+	/**
+	 * Wait for the sources to stop, then check that their connections and cursors are released.
+	 */
+	private void assertReleased() throws InterruptedException {
+		executor.shutdown();
+		executor.awaitTermination(10, TimeUnit.SECONDS);
+		assertEquals(0, db.borrowedConnections.get());
+		assertEquals(0, db.openCursors.get());
+	}
+
+	/**
+	 * The rows are returned in the order of the chunks, even if a later chunk is ready first.
+	 */
+	@Test
+	public void testOrder() throws InterruptedException {
+		db.queryRows = (_sql, parameters) -> {
+			if (parameters.contains(1)) sleep(200);
+			return chunkKeys(parameters);
+		};
+		assertEquals(keys(10), lookup(keys(10), 3).collect(Collectors.toList()));
+		assertEquals(4, db.events("executeQuery").size());
+		assertReleased();
+	}
+
+	/**
+	 * The failure of a chunk is thrown by the merged stream, and stops the other chunks.
+	 */
+	@Test
+	public void testFailure() throws InterruptedException {
+		final IllegalStateException failure = new IllegalStateException();
+		db.queryRows = (_sql, parameters) -> {
+			if (parameters.contains(7)) throw failure;
+			return chunkKeys(parameters);
+		};
+		try (Stream<Integer> stream = lookup(keys(12), 3)) {
+			assertSame(failure, assertThrows(IllegalStateException.class, () -> stream.collect(Collectors.toList())));
+		}
+		assertReleased();
+	}
+
+	/**
+	 * Closing the merged stream stops the running chunk, and the chunks waiting for a thread are not executed.
+	 */
+	@Test
+	public void testEarlyClose() throws InterruptedException {
+		executor.shutdownNow();
+		executor = Executors.newSingleThreadExecutor();
+		// the first chunk returns more rows than its buffer holds, so that it runs until the stream is closed
+		db.queryRows = (_sql, parameters) -> parameters.contains(1) ? keys(5000) : chunkKeys(parameters);
+		try (Stream<Integer> stream = lookup(keys(4), 1)) {
+			assertEquals(1, (int) stream.findFirst().get());
+		}
+		assertReleased();
+		assertEquals(1, openedChunks.get());
+		assertEquals(1, db.events("executeQuery").size());
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package com.github.fjdbc.sql;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.github.fjdbc.Fjdbc;
+import com.github.fjdbc.query.SingleRowExtractor;
+
+/**
+ * Tests the execution of {@link ParallelScan} on a {@link MockDatabase}.
+ */
+public class ParallelScanTest {
+	private final MockDatabase db = new MockDatabase();
+	private final SqlBuilder sql = new SqlBuilder(new Fjdbc(db.provider()), SqlDialect.STANDARD, false);
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Return the rows of {@code table} matching the condition of a range, e.g {@code k >= ? and k < ?} or
+	 * {@code k is null}.
+	 */
+	private void setTable(List<Integer> table) {
+		db.queryRows = (_sql, parameters) -> {
+			final String where = _sql.toLowerCase();
+			if (where.contains("k is null")) return table.stream().filter(k -> k == null).collect(Collectors.toList());
+			if (where.contains("k is not null")) {
+				return table.stream().filter(k -> k != null).collect(Collectors.toList());
+			}
+			final Iterator<Object> values = parameters.iterator();
+			final long lower = where.contains("k >= ?") ? ((Number) values.next()).longValue() : Long.MIN_VALUE;
+			final long upper = where.contains("k < ?") ? ((Number) values.next()).longValue() : Long.MAX_VALUE;
+			return table.stream().filter(k -> k != null && k >= lower && k < upper).collect(Collectors.toList());
+		};
+	}
+
+	/**
+	 * Each row is returned by exactly one range, including the rows outside of the bounds and the rows having a
+	 * {@code NULL} split column.
+	 */
+	@Test
+	public void testEachRowOnce() {
+		final List<Integer> table = new ArrayList<>();
+		IntStream.rangeClosed(1, 10).forEach(table::add);
+		table.addAll(Arrays.asList(null, null));
+		setTable(table);
+
+		final ParallelScan scan = sql.parallelScan(() -> sql.select("k").from("t"), "k", 3).bounds(3L, 8L);
+		assertEquals(4, scan.getPartitionQueries().size());
+		final SingleRowExtractor<Integer> extractor = rs -> (Integer) rs.getObject(1);
+		final List<Integer> rows;
+		try (Stream<Integer> stream = scan.toStream(extractor, executor)) {
+			rows = stream.sorted(Comparator.nullsLast(Comparator.naturalOrder())).collect(Collectors.toList());
+		}
+		assertEquals(table, rows);
+		assertEquals(4, db.events("executeQuery").size());
+		assertEquals(0, db.borrowedConnections.get());
+	}
+}
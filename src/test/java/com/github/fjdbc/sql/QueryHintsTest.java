@@ -0,0 +1,43 @@
+package com.github.fjdbc.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class QueryHintsTest {
+	private final MockDatabase db = new MockDatabase();
+
+	/**
+	 * Without explicit hints, queries are executed as is: the default fetch size only applies to streams.
+	 */
+	@Test
+	public void testNoHints() {
+		final QueryHints hints = new QueryHints();
+		assertFalse(hints.hasStatementOptions(0));
+		assertTrue(hints.hasStatementOptions(500));
+		assertEquals(500, hints.getFetchSize(500));
+		hints.fetchSize = 0;
+		assertFalse(hints.hasStatementOptions(500));
+	}
+
+	/**
+	 * The consumer set with {@link SqlBuilder.SqlSelectBuilder#doBeforeExecution} is called after the other hints.
+	 */
+	@Test
+	public void testBeforeExecution() throws SQLException {
+		final QueryHints hints = new QueryHints();
+		hints.maxRows = 10;
+		hints.beforeExecution = st -> db.events.add("beforeExecution");
+		final QueryHints copy = hints.copy();
+		assertTrue(copy.hasStatementOptions(0));
+		final PreparedStatement ps = db.newConnection().prepareStatement("select 1");
+		copy.apply(ps, 0);
+		assertEquals(Arrays.asList("setMaxRows 10", "beforeExecution"), db.events("set", "before"));
+	}
+}
@@ -119,6 +119,26 @@ public class ReadmeExamples {
 		}
 		// @formatter:on
 
+		// Streaming a large result set
+		{
+			final SingleRowExtractor<String> extractor = rs -> rs.getString("ename");
+			try (Stream<String> names = sql.select("ename").from("emp").toStream(extractor, 1000)) {
+				names.forEach(System.out::println);
+			}
+		}
+
+		// Keyset pagination
+		{
+			sql.select("*").from("emp").seekAfter(Arrays.asList("deptno", "empno"), Arrays.asList(20, 7839)).fetchFirst(100);
+		}
+
+		// Compiled statements
+		{
+			final SingleRowExtractor<String> extractor = rs -> rs.getString("ename");
+			final SqlTemplate byEmpno = sql.compile(sql.select("ename").from("emp").where("empno").eq().value(0L));
+			byEmpno.bind(7839L).toQuery(extractor).toList();
+		}
+
 		// Batch statement examples
 		// Batch statement with input data coming from a Collection
 		{
@@ -135,6 +155,14 @@ public class ReadmeExamples {
 				sql.batchStatement(stream).executeAndCommit();
 			}
 		}
+
+		// Multi-row INSERT
+		{
+			try (final Stream<SqlInsertBuilder> stream = Files.lines(Paths.get("c:/my/file.txt"))
+					.map(ReadmeExamples::createInsertStatement)) {
+				sql.batchInsert(stream).executeAndCommit();
+			}
+		}
 	}
 
 	private static SqlInsertBuilder createInsertStatement(String deptname) {
@@ -0,0 +1,72 @@
+package com.github.fjdbc.sql;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.fjdbc.sql.SqlBuilder.SqlSelectBuilder;
+
+/**
+ * Cost of rendering a typical select statement having 10 clauses, with and without the shape cache (see
+ * {@link SqlBuilder#setMaxCachedShapes(int)}).
+ * <p>
+ * Run with {@code java -cp <test classpath> org.openjdk.jmh.Main RenderBenchmark -prof gc}: the
+ * {@code gc.alloc.rate.norm} metric is the number of bytes allocated per rendering.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class RenderBenchmark {
+	private SqlSelectBuilder select;
+	private SqlSelectBuilder uncachedSelect;
+
+	@Setup
+	public void setup() {
+		select = newSelect(new SqlBuilder(null));
+		final SqlBuilder uncached = new SqlBuilder(null);
+		uncached.setMaxCachedShapes(0);
+		uncachedSelect = newSelect(uncached);
+	}
+
+	private static SqlSelectBuilder newSelect(SqlBuilder sql) {
+		// @formatter:off
+		return sql
+				.select("e.empno", "e.ename", "e.job", "d.dname", "count(*)")
+				.from("emp e")
+				.innerJoin("dept d on d.deptno = e.deptno")
+				.where("e.sal").gt().value(1000)
+				.where("e.job").in_String(Arrays.asList("CLERK", "ANALYST", "MANAGER"))
+				.where(sql.or(
+					sql.condition("e.comm").isNull(),
+					sql.condition("e.comm").lt().value(500)))
+				.groupBy("e.empno", "e.ename", "e.job", "d.dname")
+				.having("count(*)").gt().value(1)
+				.orderBy("e.empno")
+				.offset(100)
+				.fetchFirst(50);
+		// @formatter:on
+	}
+
+	@Benchmark
+	public String getSql() {
+		return select.getSql();
+	}
+
+	@Benchmark
+	public String getSql_uncached() {
+		return uncachedSelect.getSql();
+	}
+}
@@ -0,0 +1,95 @@
+package com.github.fjdbc.sql;
+
+import static org.junit.Assert.assertEquals;
+
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import com.github.fjdbc.query.SingleRowExtractor;
+
+/**
+ * Tests the release of the cursors of {@link ResultSetStream} on a {@link MockDatabase}.
+ */
+public class ResultSetStreamTest {
+	private final MockDatabase db = new MockDatabase();
+
+	private Stream<Integer> open() {
+		final SingleRowExtractor<Integer> extractor = rs -> rs.getInt(1);
+		return ResultSetStream.open(db.provider(), "select x from t", null, extractor, ResultSet.TYPE_FORWARD_ONLY,
+				ResultSet.CONCUR_READ_ONLY, ps -> ps.setFetchSize(10));
+	}
+
+	private void assertReleased() {
+		assertEquals(0, db.borrowedConnections.get());
+		assertEquals(0, db.openCursors.get());
+	}
+
+	@Test
+	public void testExhausted() {
+		db.queryRowCount = 3;
+		final Stream<Integer> stream = open();
+		assertEquals(Arrays.asList(1, 2, 3), stream.collect(Collectors.toList()));
+		// released without closing the stream
+		assertReleased();
+		assertEquals(Arrays.asList("setFetchSize 10"), db.events("setFetchSize"));
+	}
+
+	@Test
+	public void testFindFirst() {
+		db.queryRowCount = 1000;
+		try (Stream<Integer> stream = open()) {
+			assertEquals(1, (int) stream.findFirst().get());
+			assertEquals(1, db.borrowedConnections.get());
+		}
+		assertReleased();
+	}
+
+	@Test
+	public void testLimit() {
+		db.queryRowCount = 1000;
+		try (Stream<Integer> stream = open()) {
+			assertEquals(Arrays.asList(1, 2, 3), stream.limit(3).collect(Collectors.toList()));
+		}
+		assertReleased();
+	}
+
+	@Test
+	public void testNotConsumed() {
+		db.queryRowCount = 1000;
+		open().close();
+		assertReleased();
+		assertEquals(Collections.emptyList(), db.events("executeQuery"));
+	}
+
+	/**
+	 * Auto-commit is disabled while the cursor is open, and restored afterwards.
+	 */
+	@Test
+	public void testAutoCommit() {
+		db.autoCommit = true;
+		db.queryRowCount = 1000;
+		final List<String> autoCommitEvents;
+		try (Stream<Integer> stream = open()) {
+			stream.findFirst();
+			autoCommitEvents = db.events("setAutoCommit");
+		}
+		assertEquals(Arrays.asList("setAutoCommit false"), autoCommitEvents);
+		assertEquals(Arrays.asList("setAutoCommit false", "rollback", "setAutoCommit true"),
+				db.events("setAutoCommit", "rollback"));
+		assertReleased();
+	}
+
+	@Test
+	public void testAutoCommitAlreadyDisabled() {
+		db.queryRowCount = 3;
+		open().count();
+		assertEquals(Collections.emptyList(), db.events("setAutoCommit"));
+		assertReleased();
+	}
+}
@@ -6,6 +6,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.GregorianCalendar;
 
@@ -15,6 +16,9 @@ import org.junit.Test;
 
 import com.github.fjdbc.sql.SqlBuilder.Placement;
 import com.github.fjdbc.sql.SqlBuilder.SqlFragment;
+import com.github.fjdbc.sql.SqlBuilder.SqlInsertBuilder;
+import com.github.fjdbc.sql.SqlBuilder.SqlRaw;
+import com.github.fjdbc.sql.SqlBuilder.SqlSelectBuilder;
 import com.github.fjdbc.sql.SqlBuilder.SqlSelectClause;
 
 /**
@@ -145,11 +149,125 @@ public class SqlBuilderTest {
 				.raw(Placement.AFTER_KEYWORD, SqlSelectClause.FROM, "raw_after_from")
 				.raw(Placement.AFTER_EXPRESSION, SqlSelectClause.FROM, "raw_after_from_expr")
 				);
+		writeSql(sql.insertRows(Arrays.asList(
+			insertRow(sql, 1, "x"),
+			insertRow(sql, 2, "y"))
+		));
+		final SqlBuilder oracle = new SqlBuilder(null, SqlDialect.ORACLE, true);
+		writeSql(oracle.insertRows(Arrays.asList(
+			insertRow(oracle, 1, "x"),
+			insertRow(oracle, 2, "y"))
+		));
+		writeSql(sql
+				.select("*")
+				.from("emp")
+				.seekAfter(Arrays.asList("deptno", "empno"), Arrays.asList(20, 7839))
+				.fetchFirst(100)
+				);
+		writeSql(sql
+				.select("*")
+				.from("emp")
+				.where("job").eq().value("CLERK")
+				.seekAfter(Arrays.asList("deptno desc", "ename", "empno"), Arrays.asList(20, "KING", 7839))
+				);
+		writeSql(oracle
+				.select("*")
+				.from("emp")
+				.seekAfter(Arrays.asList("deptno", "empno"), Arrays.asList(20, 7839))
+				);
+		final ParallelScan scan = sql.parallelScan(() -> sql.select("empno", "ename").from("emp"), "empno", 2);
+		writeSql(scan.getBoundsQuery());
+		for (final SqlSelectBuilder partition : scan.bounds(7000L, 8000L).getPartitionQueries()) {
+			writeSql(partition);
+		}
+		final SqlBuilder postgresql = new SqlBuilder(null, SqlDialect.POSTGRESQL, true);
+		postgresql.setInListStrategy(InListStrategy.ARRAY);
+		writeSql(postgresql
+				.select("*")
+				.from("emp")
+				.where("empno").in_Long(Arrays.asList(7839L, 7698L, 7782L))
+				.where("photo").in_bytes(Arrays.asList(new byte[0]))
+				);
+		final SqlBuilder bucketing = new SqlBuilder(null, SqlDialect.STANDARD, true);
+		bucketing.setInListBucketing(true);
+		writeSql(bucketing
+				.select("*")
+				.from("emp")
+				.where("empno").in_Long(Arrays.asList(7839L, 7698L, 7782L, 7698L, 7566L, 7788L))
+				);
+		writeSql(bucketing
+				.select("*")
+				.from("emp")
+				.where("empno").in(new long[] { 7839, 7698, 7782, 7698, 7566 })
+				.where("deptno").in(new int[] { 10, 20 })
+				);
+		final SqlBuilder values = new SqlBuilder(null, SqlDialect.STANDARD, true);
+		values.setInListStrategy(InListStrategy.VALUES);
+		writeSql(values
+				.select("*")
+				.from("emp")
+				.where("ename").in_String(Arrays.asList("KING", "ALLEN"))
+				);
+		postgresql.setInListStrategy(InListStrategy.TEMP_TABLE);
+		writeSql(postgresql
+				.select("*")
+				.from("emp")
+				.where("empno").in(new long[] { 7839, 7698 })
+				);
+		final SqlBuilder compact = new SqlBuilder(null, SqlDialect.STANDARD, true);
+		compact.setCompact(true);
+		writeSql(compact
+				.select("e.ename", "'a  b' as literal")
+				.from("emp e")
+				.innerJoin("dept d on d.deptno = e.deptno")
+				.where("e.ename").eq().value("O'Brien  */")
+				.where("e.deptno").in(compact.select("deptno").from("dept").where("loc").eq().value("NEW YORK"))
+				.where(compact.or(
+					compact.condition("e.comm").isNull(),
+					compact.condition("e.comm").lt().value(500)))
+				.orderBy("e.ename")
+				);
+		writeSql(compact.union(
+				compact.select("a").from("t1"),
+				compact.select("a").from("t2"))
+				);
+		// the executed SQL does not depend on the values, even in debug mode
+		writeSql(sql.raw(sql.select("ename").from("emp").where("empno").eq().value(7839).getSql()));
+		// cached by shape: the first statement is rendered, the second one is not, the third one has another shape
+		writeSql(sql.raw(sql.select("ename").from("emp").where("empno").in_Long(Arrays.asList(1L, 2L)).getSql()));
+		writeSql(sql.raw(sql.select("ename").from("emp").where("empno").in_Long(Arrays.asList(3L, 4L)).getSql()));
+		writeSql(sql.raw(sql.select("ename").from("emp").where("empno").in_Long(Arrays.asList(5L)).getSql()));
+		// bucketing: values of different classes are not sorted; only null values never match
+		writeSql(bucketing
+				.select("*")
+				.from("emp")
+				.where(bucketing.new InConditionBuilder(new SqlRaw("empno"), Arrays.asList(7839L, 7698, 7839L),
+						Object.class))
+				.where("mgr").in_Long(Arrays.asList(null, null))
+				);
+		// compact mode: line comments end at the newline
+		writeSql(compact
+				.select("*")
+				.from("emp")
+				.where(compact.condition("a").eq().raw("1 -- note */ \nand b = 2"))
+				.where(compact.condition("c").eq().raw("3 -- last"))
+				);
+		// cached by shape: strings having the same hash code ("Aa" and "BB") do not share a key
+		writeSql(sql.raw(sql.select("Aa").from("emp").getSql()));
+		writeSql(sql.raw(sql.select("BB").from("emp").getSql()));
 		//@formatter:on
 	}
 
+	private static SqlInsertBuilder insertRow(SqlBuilder sql, int a, String b) {
+		final SqlInsertBuilder res = sql.insertInto("table1");
+		res.set("a").value(a);
+		res.set("b").value(b);
+		res.set("c").raw("current_date");
+		return res;
+	}
+
 	public void writeSql(SqlFragment sqlFragment) throws IOException {
-		writer.write(sqlFragment.getSql());
+		writer.write(sqlFragment.getDebugSql());
 		writer.write("\n\n");
 	}
 
@@ -0,0 +1,52 @@
+package com.github.fjdbc.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.github.fjdbc.RuntimeSQLException;
+import com.github.fjdbc.sql.SqlBuilder.SqlRaw;
+
+public class SqlTemplateTest {
+	private final SqlBuilder sql = new SqlBuilder(null, SqlDialect.STANDARD, false);
+
+	@Test
+	public void testSlotTypes() {
+		final SqlTemplate template = sql.compile(sql.update("emp").set("sal").value(0).set("comm").value((Double) null)
+				.where("empno").eq().value(0L));
+		assertEquals(sql.update("emp").set("sal").value(1).set("comm").value(2d).where("empno").eq().value(3L)
+				.getSql(), template.getSql());
+		assertEquals(3, template.getSlotCount());
+		assertEquals(Integer.class, template.getSlotType(0));
+		// a NULL value does not tell the type of the slot
+		assertEquals(Object.class, template.getSlotType(1));
+		assertEquals(Long.class, template.getSlotType(2));
+		assertThrows(IllegalArgumentException.class, () -> template.slot(0, Long.class));
+		assertThrows(IllegalArgumentException.class, () -> template.bind(1, 2d, 3));
+	}
+
+	@Test
+	public void testConnectionRequired() {
+		final SqlBuilder postgresql = new SqlBuilder(null, SqlDialect.POSTGRESQL, false);
+		postgresql.setInListStrategy(InListStrategy.ARRAY);
+		assertThrows(IllegalArgumentException.class, () -> postgresql
+				.compile(postgresql.select("ename").from("emp").where("empno").in_Long(Arrays.asList(1L, 2L))));
+	}
+
+	/**
+	 * The failures of binders that do not need a connection are not reported as such.
+	 */
+	@Test
+	public void testBinderFailure() {
+		assertThrows(IllegalStateException.class, () -> sql.compile(new SqlRaw("delete from emp", (ps, index) -> {
+			throw new IllegalStateException();
+		})));
+		assertThrows(RuntimeSQLException.class, () -> sql.compile(new SqlRaw("delete from emp", (ps, index) -> {
+			throw new SQLException();
+		})));
+	}
+}